@@ -17,19 +17,16 @@ package expert.os.integration.microstream;
 
 import jakarta.data.exceptions.MappingException;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.function.Predicate;
 
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
-import static expert.os.integration.microstream.CompareCondition.of;
 
 abstract class AbstractMapperQuery {
 
     protected boolean negate;
 
-    protected Predicate<?> condition;
+    protected Condition condition;
 
     protected boolean and;
 
@@ -50,7 +47,7 @@ abstract class AbstractMapperQuery {
     }
 
     protected void appendCondition(Predicate<?> newCondition) {
-        Predicate predicate = getCondition(newCondition);
+        Condition predicate = getCondition(Condition.of(newCondition));
         if (nonNull(condition)) {
             if (and) {
                 this.condition = condition.and(predicate);
@@ -69,41 +66,39 @@ abstract class AbstractMapperQuery {
     protected <T> void inImpl(Iterable<T> values) {
         requireNonNull(values, "values is required");
 
-        List<T> items = new ArrayList<>();
-        values.forEach(items::add);
         FieldMetadata field = field();
-        appendCondition(t -> items.contains(field.get(t)));
+        appendCondition(Condition.in(field, values));
     }
 
     protected <T> void eqImpl(T value) {
         requireNonNull(value, "value is required");
         FieldMetadata field = field();
-        appendCondition(e ->  value.equals(field.get(e)));
+        appendCondition(Condition.eq(field, value));
     }
 
 
     protected <T> void gteImpl(T value) {
         requireNonNull(value, "value is required");
         FieldMetadata field = field();
-        appendCondition(of(value.getClass()).gte(value, field));
+        appendCondition(Condition.gte(field, value));
     }
 
     protected <T> void gtImpl(T value) {
         requireNonNull(value, "value is required");
         FieldMetadata field = field();
-        appendCondition(of(value.getClass()).gt(value, field));
+        appendCondition(Condition.gt(field, value));
     }
 
     protected <T> void ltImpl(T value) {
         requireNonNull(value, "value is required");
         FieldMetadata field = field();
-        appendCondition(of(value.getClass()).lt(value, field));
+        appendCondition(Condition.lt(field, value));
     }
 
     protected <T> void lteImpl(T value) {
         requireNonNull(value, "value is required");
         FieldMetadata field = field();
-        appendCondition(of(value.getClass()).lte(value, field));
+        appendCondition(Condition.lte(field, value));
     }
 
     protected FieldMetadata field() {
@@ -113,7 +108,7 @@ abstract class AbstractMapperQuery {
         return field;
     }
 
-    private Predicate<?> getCondition(Predicate<?> newCondition) {
+    private Condition getCondition(Condition newCondition) {
         if (negate) {
             return newCondition.negate();
         } else {
@@ -0,0 +1,39 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+
+package expert.os.integration.microstream;
+
+/**
+ * The statistics of the cache of the query results, configured by {@code microstream.storage.cache.size},
+ * see {@link Explainer#cache()}. Only the queries of a condition and sorts with a structure are cacheable, such as
+ * the ones of {@link jakarta.nosql.Template#select(Class)} and of the query methods of a repository.
+ *
+ * @param hits   the number of queries answered from the cache
+ * @param misses the number of cacheable queries that ran
+ * @param size   the number of results held
+ */
+public record CacheStats(long hits, long misses, int size) {
+
+    /**
+     * The share of the cacheable queries answered from the cache, zero before the first one
+     *
+     * @return the hit ratio, from zero to one
+     */
+    public double hitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0D : (double) hits / requests;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import one.microstream.persistence.types.Persister;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The strategy that stores the changes of the {@link DataStorage} at the {@link Persister}.
+ * {@link #submit(Collection, Lock)} returns a future completed when the instances are durable, so a writer releases
+ * its locks before it waits for the commit.
+ */
+interface Committer extends AutoCloseable {
+
+    /**
+     * Submits the instances to a commit. The instances are read, to their snapshot at the commit, under the guard,
+     * the lock that the writers of the instances hold, so a writer submits under its lock and waits, for the future,
+     * after it releases the lock.
+     *
+     * @param instances the instances
+     * @param guard     the lock held while the instances are read
+     * @return the future completed when the instances are durable
+     */
+    CompletableFuture<Void> submit(Collection<?> instances, Lock guard);
+
+    /**
+     * Releases the resources of this committer, the default implementation does nothing
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Waits until the commits are done
+     *
+     * @param commits the futures of the commits
+     * @throws RuntimeException the failure of a commit
+     */
+    static void await(Collection<CompletableFuture<Void>> commits) {
+        try {
+            CompletableFuture.allOf(commits.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException exp) {
+            if (exp.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw exp;
+        }
+    }
+
+    /**
+     * Creates a {@link Committer} from the settings, a {@link GroupCommitter} when
+     * {@link StorageSettings#isGroupCommit()}, otherwise every call is a commit on its own.
+     *
+     * @param persister the persister
+     * @param settings  the settings
+     * @return a {@link Committer} instance
+     * @throws NullPointerException when there is a null parameter
+     */
+    static Committer of(Persister persister, StorageSettings settings) {
+        Objects.requireNonNull(persister, "persister is required");
+        Objects.requireNonNull(settings, "settings is required");
+        if (settings.isGroupCommit()) {
+            return new GroupCommitter(persister, settings.commitWindow(), settings.commitBatch());
+        }
+        return new DirectCommitter(persister);
+    }
+}
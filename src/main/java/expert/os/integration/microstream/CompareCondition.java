@@ -17,30 +17,36 @@ package expert.os.integration.microstream;
 
 import jakarta.data.exceptions.MappingException;
 
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
 
-
+/**
+ * Compiles the comparison of a field with a param to a {@link Predicate}. The type of the param is checked against
+ * the field once, at the compilation: an {@code int} or {@code long} field with a param of its boxed type is compared
+ * without boxing, a field whose type is the type of the param is compared without a check, and any other field checks
+ * the type of its value on every entity. An entity without a value never matches.
+ */
 enum CompareCondition {
 
     COMPARABLE {
         @Override
         <T> Predicate<T> gt(Object param, FieldMetadata field) {
-            return t -> ((Comparable) param).compareTo(checkTypes(field, t, param))  <= -1;
+            return compile(field, param, c -> c < 0);
         }
 
         @Override
         <T> Predicate<T> lt(Object param, FieldMetadata field) {
-            return t -> ((Comparable) param).compareTo(checkTypes(field, t, param))>= 1;
+            return compile(field, param, c -> c > 0);
         }
 
         @Override
         <T> Predicate<T> gte(Object param, FieldMetadata field) {
-            return t -> ((Comparable) param).compareTo(checkTypes(field, t, param))<= 0;
+            return compile(field, param, c -> c <= 0);
         }
 
         @Override
         <T> Predicate<T> lte(Object param, FieldMetadata field) {
-            return t -> ((Comparable) param).compareTo(checkTypes(field, t, param))  >= 0;
+            return compile(field, param, c -> c >= 0);
         }
     };
 
@@ -53,8 +59,29 @@ enum CompareCondition {
 
     abstract <T> Predicate<T> lte(Object param, FieldMetadata field);
 
-    private static <T> Object checkTypes(FieldMetadata field, T entity, Object param) {
-        Object value = field.get(entity);
+    /**
+     * Compiles the comparison, the order tests the sign of {@code param.compareTo(value)}
+     */
+    private static <T> Predicate<T> compile(FieldMetadata field, Object param, IntPredicate order) {
+        Class<?> type = field.field().getType();
+        if ((int.class.equals(type) && param instanceof Integer) || (long.class.equals(type) && param instanceof Long)) {
+            long number = ((Number) param).longValue();
+            return t -> order.test(Long.compare(number, field.getLong(t)));
+        }
+        Comparable<Object> comparable = (Comparable<Object>) param;
+        if (boxed(type).equals(param.getClass())) {
+            return t -> {
+                Object value = field.get(t);
+                return value != null && order.test(comparable.compareTo(value));
+            };
+        }
+        return t -> {
+            Object value = field.get(t);
+            return value != null && order.test(comparable.compareTo(checkTypes(field, value, param)));
+        };
+    }
+
+    private static Object checkTypes(FieldMetadata field, Object value, Object param) {
         if (param.getClass().equals(value.getClass())) {
             return value;
         }
@@ -62,6 +89,28 @@ enum CompareCondition {
                 " and the param: " + param);
     }
 
+    private static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (int.class.equals(type)) {
+            return Integer.class;
+        } else if (long.class.equals(type)) {
+            return Long.class;
+        } else if (boolean.class.equals(type)) {
+            return Boolean.class;
+        } else if (double.class.equals(type)) {
+            return Double.class;
+        } else if (float.class.equals(type)) {
+            return Float.class;
+        } else if (short.class.equals(type)) {
+            return Short.class;
+        } else if (byte.class.equals(type)) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+
     static CompareCondition of(Class<?> type) {
         if (Comparable.class.isAssignableFrom(type)) {
             return COMPARABLE;
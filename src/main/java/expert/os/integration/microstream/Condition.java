@@ -0,0 +1,713 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A {@link Predicate} that keeps the structure of the query condition, so {@link DataStorage} can use the
+ * {@link Indexes} of the entity type to narrow the candidates instead of a scan of every entity.
+ * The candidates are always tested against the whole condition, so an index is only a shortcut.
+ * <p>
+ * The {@link Predicate#and(Predicate)}, {@link Predicate#or(Predicate)} and {@link Predicate#negate()}
+ * return a {@link Condition}, so the combination of conditions keeps the structure. The nested ands and ors are
+ * flattened, and their conditions are tested in the order of their estimated {@link #selectivity()}, so the same
+ * compiled tree serves the {@link MapperSelect}, the {@link MapperDelete} and the repository methods.
+ * <p>
+ * The conditions with a structure are equal when they have the same structure, fields and values, so they are
+ * the key of the {@link ResultCache}.
+ */
+abstract class Condition implements Predicate<Object> {
+
+    private static final double EQUALS_SELECTIVITY = 0.01D;
+
+    private static final double RANGE_SELECTIVITY = 0.3D;
+
+    /**
+     * Returns the keys of the candidates from the indexes, or {@link Optional#empty()} when the indexes
+     * cannot narrow this condition, where a scan is required.
+     *
+     * @param indexes the indexes of the entity type
+     * @return the candidate keys or {@link Optional#empty()}
+     */
+    abstract Optional<Set<Object>> keys(Indexes indexes);
+
+    /**
+     * Returns how the {@link #keys(Indexes)} of this condition are found
+     *
+     * @param indexes the indexes of the entity type
+     * @return the {@link QueryPlan.Access}
+     */
+    abstract QueryPlan.Access access(Indexes indexes);
+
+    /**
+     * Checks if the {@link #keys(Indexes)} of this condition are exactly its matches, where every part of the
+     * condition is answered by a secondary index on a final field, so the keys need no test, such as to count
+     * the matches. A field that is not final might change in place, without a write, and then the index keeps
+     * the key under the old value until the entity is written again.
+     *
+     * @param indexes the indexes of the entity type
+     * @return {@code true} when the indexes cover the condition
+     */
+    abstract boolean isCovered(Indexes indexes);
+
+    /**
+     * Checks if the whole condition is made of fields and values, without an opaque {@link Predicate},
+     * so two conditions with the same structure match the same entities.
+     *
+     * @return {@code true} when the condition has a structure
+     */
+    abstract boolean isStructured();
+
+    /**
+     * Estimates the fraction of the entities that match the condition, from zero to one, to test the most
+     * selective conditions of an and first
+     *
+     * @return the estimated selectivity
+     */
+    abstract double selectivity();
+
+    @Override
+    public Condition and(Predicate<? super Object> other) {
+        List<Condition> conditions = new ArrayList<>();
+        for (Condition condition : List.of(this, of(other))) {
+            if (condition instanceof And and) {
+                conditions.addAll(and.conditions);
+            } else {
+                conditions.add(condition);
+            }
+        }
+        return new And(Collections.unmodifiableList(conditions));
+    }
+
+    @Override
+    public Condition or(Predicate<? super Object> other) {
+        List<Condition> conditions = new ArrayList<>();
+        for (Condition condition : List.of(this, of(other))) {
+            if (condition instanceof Or or) {
+                conditions.addAll(or.conditions);
+            } else {
+                conditions.add(condition);
+            }
+        }
+        return new Or(Collections.unmodifiableList(conditions));
+    }
+
+    @Override
+    public Condition negate() {
+        return new Not(this);
+    }
+
+    /**
+     * Returns the predicate as a {@link Condition}, a predicate without structure is never narrowed by an index
+     *
+     * @param predicate the predicate
+     * @return the {@link Condition}
+     * @throws NullPointerException when predicate is null
+     */
+    static Condition of(Predicate<?> predicate) {
+        Objects.requireNonNull(predicate, "predicate is required");
+        if (predicate instanceof Condition condition) {
+            return condition;
+        }
+        return new Filter((Predicate<Object>) predicate);
+    }
+
+    /**
+     * Returns the condition that matches every entity
+     *
+     * @return the {@link Condition}
+     */
+    static Condition all() {
+        return All.INSTANCE;
+    }
+
+    /**
+     * Creates the condition where the field is equal to the value
+     *
+     * @param field the field
+     * @param value the value
+     * @return the {@link Condition}
+     * @throws NullPointerException when there is a null parameter
+     */
+    static Condition eq(FieldMetadata field, Object value) {
+        Objects.requireNonNull(field, "field is required");
+        Objects.requireNonNull(value, "value is required");
+        return new In(field, Collections.singleton(value));
+    }
+
+    /**
+     * Creates the condition where the field is equal to any of the values
+     *
+     * @param field  the field
+     * @param values the values
+     * @return the {@link Condition}
+     * @throws NullPointerException when there is a null parameter
+     */
+    static Condition in(FieldMetadata field, Iterable<?> values) {
+        Objects.requireNonNull(field, "field is required");
+        Objects.requireNonNull(values, "values is required");
+        Set<Object> items = new LinkedHashSet<>();
+        values.forEach(items::add);
+        return new In(field, Collections.unmodifiableSet(items));
+    }
+
+    /**
+     * Creates the condition where the field is greater than the value
+     *
+     * @param field the field
+     * @param value the value
+     * @return the {@link Condition}
+     * @throws NullPointerException          when there is a null parameter
+     * @throws UnsupportedOperationException when the value is not {@link Comparable}
+     */
+    static Condition gt(FieldMetadata field, Object value) {
+        Objects.requireNonNull(field, "field is required");
+        Objects.requireNonNull(value, "value is required");
+        return new Range(field, CompareCondition.of(value.getClass()).gt(value, field), value, false, null, false);
+    }
+
+    /**
+     * Creates the condition where the field is greater than or equal to the value
+     *
+     * @param field the field
+     * @param value the value
+     * @return the {@link Condition}
+     * @throws NullPointerException          when there is a null parameter
+     * @throws UnsupportedOperationException when the value is not {@link Comparable}
+     */
+    static Condition gte(FieldMetadata field, Object value) {
+        Objects.requireNonNull(field, "field is required");
+        Objects.requireNonNull(value, "value is required");
+        return new Range(field, CompareCondition.of(value.getClass()).gte(value, field), value, true, null, false);
+    }
+
+    /**
+     * Creates the condition where the field is lesser than the value
+     *
+     * @param field the field
+     * @param value the value
+     * @return the {@link Condition}
+     * @throws NullPointerException          when there is a null parameter
+     * @throws UnsupportedOperationException when the value is not {@link Comparable}
+     */
+    static Condition lt(FieldMetadata field, Object value) {
+        Objects.requireNonNull(field, "field is required");
+        Objects.requireNonNull(value, "value is required");
+        return new Range(field, CompareCondition.of(value.getClass()).lt(value, field), null, false, value, false);
+    }
+
+    /**
+     * Creates the condition where the field is lesser than or equal to the value
+     *
+     * @param field the field
+     * @param value the value
+     * @return the {@link Condition}
+     * @throws NullPointerException          when there is a null parameter
+     * @throws UnsupportedOperationException when the value is not {@link Comparable}
+     */
+    static Condition lte(FieldMetadata field, Object value) {
+        Objects.requireNonNull(field, "field is required");
+        Objects.requireNonNull(value, "value is required");
+        return new Range(field, CompareCondition.of(value.getClass()).lte(value, field), null, false, value, true);
+    }
+
+    private static final class Filter extends Condition {
+
+        private final Predicate<Object> predicate;
+
+        private Filter(Predicate<Object> predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean test(Object entity) {
+            return predicate.test(entity);
+        }
+
+        @Override
+        Optional<Set<Object>> keys(Indexes indexes) {
+            return Optional.empty();
+        }
+
+        @Override
+        QueryPlan.Access access(Indexes indexes) {
+            return QueryPlan.Access.SCAN;
+        }
+
+        @Override
+        boolean isCovered(Indexes indexes) {
+            return false;
+        }
+
+        @Override
+        boolean isStructured() {
+            return false;
+        }
+
+        @Override
+        double selectivity() {
+            return 1D;
+        }
+    }
+
+    private static final class All extends Condition {
+
+        private static final All INSTANCE = new All();
+
+        @Override
+        public boolean test(Object entity) {
+            return true;
+        }
+
+        @Override
+        Optional<Set<Object>> keys(Indexes indexes) {
+            return Optional.empty();
+        }
+
+        @Override
+        QueryPlan.Access access(Indexes indexes) {
+            return QueryPlan.Access.SCAN;
+        }
+
+        @Override
+        boolean isCovered(Indexes indexes) {
+            return false;
+        }
+
+        @Override
+        boolean isStructured() {
+            return true;
+        }
+
+        @Override
+        double selectivity() {
+            return 1D;
+        }
+    }
+
+    /**
+     * The membership test of the values, a hash lookup, or a binary search without boxing on an {@code int} or
+     * {@code long} field whose values all have its boxed type. On the id field, the values are the keys.
+     */
+    private static final class In extends Condition {
+
+        private final FieldMetadata field;
+
+        private final Set<Object> values;
+
+        private final long[] numbers;
+
+        private In(FieldMetadata field, Set<Object> values) {
+            this.field = field;
+            this.values = values;
+            this.numbers = numbers(field, values);
+        }
+
+        @Override
+        public boolean test(Object entity) {
+            if (numbers != null) {
+                return Arrays.binarySearch(numbers, field.getLong(entity)) >= 0;
+            }
+            return values.contains(field.get(entity));
+        }
+
+        @Override
+        Optional<Set<Object>> keys(Indexes indexes) {
+            if (values.contains(null)) {
+                return Optional.empty();
+            }
+            if (indexes.isId(field)) {
+                return Optional.of(values);
+            }
+            return indexes.find(field).map(index -> {
+                if (values.size() == 1) {
+                    return index.keys(values.iterator().next());
+                }
+                Set<Object> keys = new HashSet<>();
+                values.forEach(v -> keys.addAll(index.keys(v)));
+                return keys;
+            });
+        }
+
+        @Override
+        QueryPlan.Access access(Indexes indexes) {
+            if (values.contains(null)) {
+                return QueryPlan.Access.SCAN;
+            }
+            if (indexes.isId(field)) {
+                return QueryPlan.Access.KEY;
+            }
+            return indexes.find(field).isPresent() ? QueryPlan.Access.INDEX : QueryPlan.Access.SCAN;
+        }
+
+        @Override
+        boolean isCovered(Indexes indexes) {
+            return !values.contains(null) && !indexes.isId(field) && field.isFinal() && indexes.find(field).isPresent();
+        }
+
+        private static long[] numbers(FieldMetadata field, Set<Object> values) {
+            Class<?> type = field.field().getType();
+            Class<?> boxed = int.class.equals(type) ? Integer.class : long.class.equals(type) ? Long.class : null;
+            if (boxed == null || !values.stream().allMatch(v -> v != null && boxed.equals(v.getClass()))) {
+                return null;
+            }
+            long[] numbers = values.stream().mapToLong(v -> ((Number) v).longValue()).toArray();
+            Arrays.sort(numbers);
+            return numbers;
+        }
+
+        @Override
+        boolean isStructured() {
+            return true;
+        }
+
+        @Override
+        double selectivity() {
+            return Math.min(1D, EQUALS_SELECTIVITY * values.size());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            In that = (In) o;
+            return Objects.equals(field, that.field) && Objects.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, values);
+        }
+    }
+
+    private static final class Range extends Condition {
+
+        private final FieldMetadata field;
+
+        private final Predicate<Object> predicate;
+
+        private final Object from;
+
+        private final boolean fromInclusive;
+
+        private final Object to;
+
+        private final boolean toInclusive;
+
+        private Range(FieldMetadata field, Predicate<Object> predicate, Object from, boolean fromInclusive,
+                      Object to, boolean toInclusive) {
+            this.field = field;
+            this.predicate = predicate;
+            this.from = from;
+            this.fromInclusive = fromInclusive;
+            this.to = to;
+            this.toInclusive = toInclusive;
+        }
+
+        @Override
+        public boolean test(Object entity) {
+            return predicate.test(entity);
+        }
+
+        @Override
+        Optional<Set<Object>> keys(Indexes indexes) {
+            return indexes.find(field).flatMap(index -> index.range(from, fromInclusive, to, toInclusive));
+        }
+
+        @Override
+        QueryPlan.Access access(Indexes indexes) {
+            return indexes.find(field).filter(SortedIndex.class::isInstance).isPresent()
+                    ? QueryPlan.Access.INDEX : QueryPlan.Access.SCAN;
+        }
+
+        @Override
+        boolean isCovered(Indexes indexes) {
+            return field.isFinal() && QueryPlan.Access.INDEX.equals(access(indexes));
+        }
+
+        @Override
+        boolean isStructured() {
+            return true;
+        }
+
+        @Override
+        double selectivity() {
+            return RANGE_SELECTIVITY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Range that = (Range) o;
+            return fromInclusive == that.fromInclusive && toInclusive == that.toInclusive
+                    && Objects.equals(field, that.field) && Objects.equals(from, that.from)
+                    && Objects.equals(to, that.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, from, fromInclusive, to, toInclusive);
+        }
+    }
+
+    /**
+     * The conditions of an and, flattened from the nested ands, tested from the most selective to the least one,
+     * and the conditions without a structure last, in the order they were given.
+     */
+    private static final class And extends Condition {
+
+        private final List<Condition> conditions;
+
+        private final Condition[] evaluation;
+
+        private And(List<Condition> conditions) {
+            this.conditions = conditions;
+            this.evaluation = conditions.stream()
+                    .sorted(Comparator.comparing((Condition c) -> !c.isStructured())
+                            .thenComparingDouble(Condition::selectivity))
+                    .toArray(Condition[]::new);
+        }
+
+        @Override
+        public boolean test(Object entity) {
+            for (Condition condition : evaluation) {
+                if (!condition.test(entity)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Optional<Set<Object>> keys(Indexes indexes) {
+            List<Set<Object>> keys = new ArrayList<>();
+            for (Condition condition : conditions) {
+                condition.keys(indexes).ifPresent(keys::add);
+            }
+            if (keys.size() <= 1) {
+                return keys.stream().findFirst();
+            }
+            keys.sort(Comparator.comparingInt(Set::size));
+            Set<Object> intersection = new HashSet<>(keys.get(0));
+            keys.subList(1, keys.size()).forEach(intersection::retainAll);
+            return Optional.of(intersection);
+        }
+
+        @Override
+        QueryPlan.Access access(Indexes indexes) {
+            Set<QueryPlan.Access> accesses = EnumSet.noneOf(QueryPlan.Access.class);
+            conditions.forEach(c -> accesses.add(c.access(indexes)));
+            accesses.remove(QueryPlan.Access.SCAN);
+            if (accesses.isEmpty()) {
+                return QueryPlan.Access.SCAN;
+            }
+            return accesses.size() == 1 ? accesses.iterator().next() : QueryPlan.Access.INDEX;
+        }
+
+        @Override
+        boolean isCovered(Indexes indexes) {
+            return conditions.stream().allMatch(c -> c.isCovered(indexes));
+        }
+
+        @Override
+        double selectivity() {
+            return conditions.stream().mapToDouble(Condition::selectivity).reduce(1D, (a, b) -> a * b);
+        }
+
+        @Override
+        boolean isStructured() {
+            return conditions.stream().allMatch(Condition::isStructured);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            And that = (And) o;
+            return Objects.equals(conditions, that.conditions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(And.class, conditions);
+        }
+    }
+
+    /**
+     * The conditions of an or, flattened from the nested ors, tested from the least selective to the most one,
+     * and the conditions without a structure last, in the order they were given.
+     */
+    private static final class Or extends Condition {
+
+        private final List<Condition> conditions;
+
+        private final Condition[] evaluation;
+
+        private Or(List<Condition> conditions) {
+            this.conditions = conditions;
+            this.evaluation = conditions.stream()
+                    .sorted(Comparator.comparing((Condition c) -> !c.isStructured())
+                            .thenComparingDouble(c -> -c.selectivity()))
+                    .toArray(Condition[]::new);
+        }
+
+        @Override
+        public boolean test(Object entity) {
+            for (Condition condition : evaluation) {
+                if (condition.test(entity)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        Optional<Set<Object>> keys(Indexes indexes) {
+            Set<Object> union = new HashSet<>();
+            for (Condition condition : conditions) {
+                Optional<Set<Object>> keys = condition.keys(indexes);
+                if (keys.isEmpty()) {
+                    return keys;
+                }
+                union.addAll(keys.get());
+            }
+            return Optional.of(union);
+        }
+
+        @Override
+        QueryPlan.Access access(Indexes indexes) {
+            Set<QueryPlan.Access> accesses = EnumSet.noneOf(QueryPlan.Access.class);
+            conditions.forEach(c -> accesses.add(c.access(indexes)));
+            if (accesses.contains(QueryPlan.Access.SCAN)) {
+                return QueryPlan.Access.SCAN;
+            }
+            return accesses.size() == 1 ? accesses.iterator().next() : QueryPlan.Access.INDEX;
+        }
+
+        @Override
+        boolean isCovered(Indexes indexes) {
+            return conditions.stream().allMatch(c -> c.isCovered(indexes));
+        }
+
+        @Override
+        double selectivity() {
+            return Math.min(1D, conditions.stream().mapToDouble(Condition::selectivity).sum());
+        }
+
+        @Override
+        boolean isStructured() {
+            return conditions.stream().allMatch(Condition::isStructured);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Or that = (Or) o;
+            return Objects.equals(conditions, that.conditions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(Or.class, conditions);
+        }
+    }
+
+    private static final class Not extends Condition {
+
+        private final Condition condition;
+
+        private Not(Condition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        public boolean test(Object entity) {
+            return !condition.test(entity);
+        }
+
+        @Override
+        Optional<Set<Object>> keys(Indexes indexes) {
+            return Optional.empty();
+        }
+
+        @Override
+        QueryPlan.Access access(Indexes indexes) {
+            return QueryPlan.Access.SCAN;
+        }
+
+        @Override
+        boolean isCovered(Indexes indexes) {
+            return false;
+        }
+
+        @Override
+        boolean isStructured() {
+            return condition.isStructured();
+        }
+
+        @Override
+        double selectivity() {
+            return 1D - condition.selectivity();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Not that = (Not) o;
+            return Objects.equals(condition, that.condition);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(Not.class, condition);
+        }
+    }
+}
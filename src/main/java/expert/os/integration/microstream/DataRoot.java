@@ -0,0 +1,195 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The root graph stored at Microstream. It keeps one {@link Partition} per entity type,
+ * where the key is the entity class name. A partition is created lazily on the first write of its type.
+ */
+final class DataRoot {
+
+    private final Map<String, Partition> partitions;
+
+    DataRoot() {
+        this.partitions = new HashMap<>();
+    }
+
+    /**
+     * Returns the partition of the entity type if it exists
+     *
+     * @param type the entity type
+     * @return the partition or {@link Optional#empty()}
+     */
+    Optional<Partition> find(Class<?> type) {
+        Objects.requireNonNull(type, "type is required");
+        return Optional.ofNullable(this.partitions.get(type.getName()));
+    }
+
+    /**
+     * Returns the partition of the entity type, creating it when it does not exist
+     *
+     * @param type    the entity type
+     * @param stripes the number of stripes of a new partition
+     * @return the partition
+     */
+    Partition partition(Class<?> type, int stripes) {
+        Objects.requireNonNull(type, "type is required");
+        return this.partitions.computeIfAbsent(type.getName(), k -> new Partition(stripes));
+    }
+
+    /**
+     * Checks if there is a partition to the entity type
+     *
+     * @param type the entity type
+     * @return {@code true} if the partition was already created
+     */
+    boolean contains(Class<?> type) {
+        Objects.requireNonNull(type, "type is required");
+        return this.partitions.containsKey(type.getName());
+    }
+
+    /**
+     * Removes the partition of the entity type
+     *
+     * @param type the entity type
+     * @return {@code true} if there was a partition to remove
+     */
+    boolean remove(Class<?> type) {
+        Objects.requireNonNull(type, "type is required");
+        return this.partitions.remove(type.getName()) != null;
+    }
+
+    /**
+     * Removes all partitions
+     */
+    void clear() {
+        this.partitions.clear();
+    }
+
+    /**
+     * Returns all partitions
+     *
+     * @return the partitions
+     */
+    Collection<Partition> values() {
+        return Collections.unmodifiableCollection(this.partitions.values());
+    }
+
+    /**
+     * Returns all partitions, where the key is the entity class name
+     *
+     * @return the partitions by the class name
+     */
+    Map<String, Partition> partitions() {
+        return Collections.unmodifiableMap(this.partitions);
+    }
+
+    /**
+     * Returns the number of entities of each partition, where the key is the entity class name
+     *
+     * @return the sizes of the partitions
+     */
+    Map<String, Integer> sizes() {
+        Map<String, Integer> sizes = new HashMap<>();
+        this.partitions.forEach((name, partition) -> sizes.put(name, partition.size()));
+        return sizes;
+    }
+
+    /**
+     * Hashes every partition, that has a different number of stripes, to the number of stripes
+     *
+     * @param stripes the number of stripes
+     * @return {@code true} if any partition changed
+     */
+    boolean restripe(int stripes) {
+        boolean changed = false;
+        for (Map.Entry<String, Partition> entry : this.partitions.entrySet()) {
+            Partition partition = entry.getValue();
+            if (partition.stripes().size() != stripes) {
+                entry.setValue(partition.restripe(stripes));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Creates the expirations of the partitions stored before they existed, see {@link Partition#upgrade()}
+     *
+     * @return the partitions that changed, to store
+     */
+    List<Partition> upgrade() {
+        return this.partitions.values().stream().filter(Partition::upgrade).toList();
+    }
+
+    /**
+     * The structure that holds the partitions, it is the instance to store when a partition is either created
+     * or removed.
+     *
+     * @return the partitions holder
+     */
+    Object holder() {
+        return this.partitions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DataRoot that = (DataRoot) o;
+        return Objects.equals(partitions, that.partitions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(partitions);
+    }
+
+    @Override
+    public String toString() {
+        return "DataRoot{" +
+                "partitions=" + partitions +
+                '}';
+    }
+
+    /**
+     * Migrates the previous root structure, a single {@link Map} with every entity of every type,
+     * to a partitioned root where each entity goes to the partition of its class.
+     *
+     * @param data    the single map root
+     * @param stripes the number of stripes of each partition
+     * @return a new {@link DataRoot} with the same entities
+     * @throws NullPointerException when data is null
+     */
+    static DataRoot of(Map<Object, Object> data, int stripes) {
+        Objects.requireNonNull(data, "data is required");
+        DataRoot root = new DataRoot();
+        data.forEach((key, value) -> root.partition(value.getClass(), stripes).stripeOf(key).put(key, value));
+        return root;
+    }
+}
@@ -19,10 +19,27 @@ import one.microstream.collections.lazy.LazyHashMap;
 import one.microstream.persistence.types.Persister;
 import one.microstream.storage.types.StorageManager;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
 
@@ -30,186 +47,788 @@ import static java.util.stream.Collectors.toMap;
  * The data structure used at Microstream on both {@link jakarta.nosql.Template} and any {@link jakarta.data.repository.DataRepository}
  * implementation.
  * <p>
- * It is a wrapper of {@link LazyHashMap}
+ * It is a wrapper of {@link DataRoot}, where each entity type has its own {@link Partition}, so every operation
+ * is scoped to the partition of the entity type.
+ * <p>
+ * The keys are hashed into stripes, see {@link StorageSettings#stripes()}, and each stripe has its own lock.
+ * The read operations run in parallel under the read lock of the stripe; only the mutations take the write lock
+ * of the stripe, so writes on different stripes run in parallel. Creating or removing a whole partition takes the
+ * exclusive lock of the structure.
+ * <p>
+ * The changes are stored by a {@link Committer}, see {@link StorageSettings#isGroupCommit()}, where concurrent writes
+ * might share a single commit. A write submits what it changed before it releases its locks, the committer stores it
+ * under the read lock of the stripe, or the exclusive lock for a partition, so the commit holds a consistent snapshot,
+ * and the writer waits for the commit only after it released its locks, so the writes on the same stripe join the
+ * same commit.
+ * <p>
+ * The {@link Indexes} of each entity type are maintained on every write, under the lock of the stripe of the key,
+ * and a query with a {@link Condition} uses them to fetch the candidates instead of a scan. An equals or in
+ * condition on the id reads its values as the keys of the candidates. Each query is planned before the entities are
+ * read, see {@link QueryPlan} and {@link #explain(Class, Predicate, List, long, long)}.
+ * <p>
+ * A sorted query with a limit keeps only the first {@code start + limit} matches at a {@link TopSelection}
+ * instead of sorting every match.
+ * <p>
+ * The results of the queries might be kept at a {@link ResultCache}, see {@link StorageSettings#cacheSize()},
+ * where every write invalidates the results of its entity type.
+ * <p>
+ * The number of entities of each type is counted on every write, so {@link #size(Class)} does not read the stripes.
+ * <p>
+ * An entity written with a time to live has its expiration stored at the stripe, see {@link Partition#expirations(int)},
+ * and queued at the {@link ExpiryQueue}, whose reaper removes the expired entities in batches. The reads skip an
+ * expired entity that the reaper did not remove yet, and a write without a time to live removes the expiration.
  */
 class DataStorage {
 
-    private final Map<Object, Object> data;
-    private final Persister persister;
+    private static final Logger LOGGER = Logger.getLogger(DataStorage.class.getName());
+
+    private static final int TOP_SELECTION_LIMIT = 100_000;
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final DataRoot root;
+    private final Committer committer;
+    private final StorageSettings settings;
+    private final ReadWriteLock lock;
+    private final ReadWriteLock[] locks;
+    private final Map<Class<?>, Indexes> indexes;
+    private final ResultCache cache;
+    private final Map<String, LongAdder> counts;
+    private final ExpiryQueue expiries;
 
-    DataStorage(Map<Object, Object> data, Persister persister) {
-        this.data = data;
-        this.persister = persister;
+    DataStorage(DataRoot root, Persister persister, StorageSettings settings, Entities entities) {
+        this.root = root;
+        this.committer = Committer.of(persister, settings);
+        this.settings = settings;
+        this.lock = new ReentrantReadWriteLock();
+        this.locks = new ReadWriteLock[settings.stripes()];
+        for (int index = 0; index < this.locks.length; index++) {
+            this.locks[index] = new ReentrantReadWriteLock();
+        }
+        this.indexes = entities.values().stream()
+                .map(metadata -> Map.entry(metadata.type(), Indexes.of(metadata)))
+                .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
+        this.indexes.entrySet().stream().filter(e -> !e.getValue().isEmpty())
+                .forEach(e -> this.root.find(e.getKey())
+                .ifPresent(partition -> partition.stripes().stream().filter(s -> !s.isEmpty())
+                        .forEach(stripe -> stripe.forEach(e.getValue()::put))));
+        this.cache = ResultCache.of(settings.cacheSize());
+        this.counts = new ConcurrentHashMap<>();
+        this.root.sizes().forEach((name, size) -> count(name).add(size));
+        this.expiries = new ExpiryQueue(settings.expiryInterval(), this::reap);
+        this.root.partitions().forEach(this::expire);
+    }
+
+    DataStorage(DataRoot root, Persister persister, StorageSettings settings) {
+        this(root, persister, settings, Entities.of(Collections.emptySet()));
+    }
+
+    DataStorage(DataRoot root, Persister persister) {
+        this(root, persister, StorageSettings.DEFAULT);
     }
 
     DataStorage() {
-        this(null, null);
+        this.root = null;
+        this.committer = null;
+        this.settings = null;
+        this.lock = null;
+        this.locks = null;
+        this.indexes = null;
+        this.cache = null;
+        this.counts = null;
+        this.expiries = null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in the partition of the value type.
+     *
+     * @param key   the key
+     * @param value the entity
+     * @param <K>   the key type
+     * @param <V>   the entity type
+     */
+    public <K, V> void put(K key, V value) {
+        put(key, value, 0L);
     }
 
     /**
-     * Associates the specified value with the specified key in this map.
+     * Associates the specified value with the specified key in the partition of the value type,
+     * the entity expires once the time to live elapses.
      *
      * @param key   the key
      * @param value the entity
+     * @param ttl   the time to live
      * @param <K>   the key type
      * @param <V>   the entity type
+     * @throws IllegalArgumentException when the time to live is not positive
      */
-    public synchronized <K, V> void put(K key, V value) {
+    public <K, V> void put(K key, V value, Duration ttl) {
+        put(key, value, deadline(ttl));
+    }
+
+    private <K, V> void put(K key, V value, long deadline) {
         Objects.requireNonNull(key, "key is required");
         Objects.requireNonNull(value, "value is required");
-        Object oldValue = this.data.put(key, value);
-        if (oldValue == value) {
-            commitEntity(value);
-        } else {
-            commitMap();
-        }
+        Class<?> type = value.getClass();
+        CompletableFuture<Void> commit = shared(() -> this.root.find(type).map(partition -> {
+            int index = partition.index(key);
+            return write(index, () -> put(type, partition, index, key, value, deadline));
+        })).orElseGet(() -> exclusive(() -> {
+            boolean created = !this.root.contains(type);
+            Partition partition = this.root.partition(type, settings.stripes());
+            int index = partition.index(key);
+            if (created) {
+                insert(partition.stripe(index), key, value);
+                expire(type, partition, index, key, deadline);
+                return commitRoot();
+            }
+            return put(type, partition, index, key, value, deadline);
+        }));
+        Committer.await(List.of(commit));
     }
 
     /**
-     * Inserts multiples entries on the data storage
+     * Inserts multiples entries on the data storage. The entries of each stripe are committed together.
      *
      * @param entries the entries
      */
-    public synchronized void put(List<Entry> entries) {
-        Objects.requireNonNull(entries, "entries is required");
-        Map<Object, Object> entities = entries.stream().collect(toMap(Entry::key, Entry::value,
-                (a, b) -> a));
-        // This is a little bit more complex when we want to avoid EagerStorer.
+    public void put(List<Entry> entries) {
+        put(entries, 0L);
+    }
 
-        List<Object> updatedInstances = new ArrayList<>();
-        for (Map.Entry<Object, Object> entry : entities.entrySet()) {
-            if (entry.getValue() == this.data.put(entry.getKey(), entry.getValue())) {
-                updatedInstances.add(entry.getValue());
+    /**
+     * Inserts multiples entries on the data storage, each entity expires once the time to live elapses.
+     * The entries of each stripe are committed together.
+     *
+     * @param entries the entries
+     * @param ttl     the time to live
+     * @throws IllegalArgumentException when the time to live is not positive
+     */
+    public void put(List<Entry> entries, Duration ttl) {
+        put(entries, deadline(ttl));
+    }
+
+    private void put(List<Entry> entries, long deadline) {
+        Objects.requireNonNull(entries, "entries is required");
+        Map<Class<?>, Map<Object, Object>> types = entries.stream()
+                .collect(groupingBy(e -> e.value().getClass(), LinkedHashMap::new,
+                        toMap(Entry::key, Entry::value, (a, b) -> a)));
+        Optional<List<CompletableFuture<Void>>> stored = shared(() -> {
+            if (!types.keySet().stream().allMatch(this.root::contains)) {
+                return Optional.empty();
             }
-        }
-        if (!updatedInstances.isEmpty()) {
-            persister.storeAll(updatedInstances);
-        }
-        if (updatedInstances.size() != entities.size()) {
-            // Commit entire Map as not all Put operations are pure (same instance)
-            this.commitMap();
-        }
+            List<CompletableFuture<Void>> commits = new ArrayList<>();
+            types.forEach((type, entities) -> {
+                Partition partition = this.root.find(type).orElseThrow();
+                entities.entrySet().stream()
+                        .collect(groupingBy(e -> partition.index(e.getKey()), TreeMap::new,
+                                toMap(Map.Entry::getKey, Map.Entry::getValue)))
+                        .forEach((index, stripe) -> commits.add(write(index,
+                                () -> put(type, partition, index, stripe, deadline))));
+            });
+            return Optional.of(commits);
+        });
+        List<CompletableFuture<Void>> commits = stored.orElseGet(() -> exclusive(() -> {
+            boolean created = false;
+            List<Object> updatedInstances = new ArrayList<>();
+            Set<Map<Object, ?>> changedStripes = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Map.Entry<Class<?>, Map<Object, Object>> type : types.entrySet()) {
+                boolean newPartition = !this.root.contains(type.getKey());
+                Partition partition = this.root.partition(type.getKey(), settings.stripes());
+                created = created || newPartition;
+                for (Map.Entry<Object, Object> entry : type.getValue().entrySet()) {
+                    int index = partition.index(entry.getKey());
+                    Map<Object, Object> stripe = partition.stripe(index);
+                    if (entry.getValue() == insert(stripe, entry.getKey(), entry.getValue())) {
+                        updatedInstances.add(entry.getValue());
+                    } else if (!newPartition) {
+                        changedStripes.add(stripe);
+                    }
+                    if (expire(type.getKey(), partition, index, entry.getKey(), deadline) && !newPartition) {
+                        changedStripes.add(partition.expirations(index));
+                    }
+                }
+            }
+            updatedInstances.addAll(changedStripes);
+            if (created) {
+                updatedInstances.add(this.root.holder());
+            }
+            return List.of(commitExclusive(updatedInstances));
+        }));
+        Committer.await(commits);
     }
 
     /**
-     * * Returns the value to which the specified key is mapped,
-     * or {@code Optional#empty()} if this map contains no mapping for the key.
+     * * Returns the value to which the specified key is mapped at the partition of the type,
+     * or {@code Optional#empty()} if this partition contains no mapping for the key.
      *
-     * @param key the key or ID
-     * @param <K> the key type
-     * @param <V> the entity type
+     * @param type the entity type
+     * @param key  the key or ID
+     * @param <K>  the key type
+     * @param <V>  the entity type
      * @return the entity of {@link Optional#empty()}
      */
-    public synchronized <K, V> Optional<V> get(K key) {
+    public <K, V> Optional<V> get(Class<?> type, K key) {
+        Objects.requireNonNull(type, "type is required");
         Objects.requireNonNull(key, "key is required");
-        return (Optional<V>) Optional.ofNullable(this.data.get(key));
+        return shared(() -> this.root.find(type).map(partition -> {
+            int index = partition.index(key);
+            long now = System.currentTimeMillis();
+            return (V) read(index, () -> partition.isExpired(index, key, now) ? null : partition.stripe(index).get(key));
+        }));
     }
 
     /**
-     * Removes the mapping for a key from this map if it is present
+     * Removes the mapping for a key from the partition of the type if it is present
      *
-     * @param key the key
-     * @param <K> the key type
+     * @param type the entity type
+     * @param key  the key
+     * @param <K>  the key type
      */
-    public synchronized <K> void remove(K key) {
+    public <K> void remove(Class<?> type, K key) {
+        Objects.requireNonNull(type, "type is required");
         Objects.requireNonNull(key, "key is required");
-        this.data.remove(key);
-        this.commitMap();
+        shared(() -> this.root.find(type).map(partition -> {
+            int index = partition.index(key);
+            return write(index, () -> delete(type, partition.stripe(index), key) == null ? DONE
+                    : commitStripe(partition, index, unexpire(type, partition, index, key)));
+        })).ifPresent(commit -> Committer.await(List.of(commit)));
     }
 
     /**
-     * Removes the mapping for a key from this map if it is present as Bulk operation.
+     * Removes the mapping for a key from the partition of the type if it is present as Bulk operation.
      *
+     * @param type the entity type
      * @param keys the keys entries
      * @param <K>  the key type
      */
-    public synchronized <K> void remove(Iterable<K> keys) {
+    public <K> void remove(Class<?> type, Iterable<K> keys) {
+        Objects.requireNonNull(type, "type is required");
         Objects.requireNonNull(keys, "keys is required");
-        keys.forEach(this.data::remove);
-        this.commitMap();
+        shared(() -> this.root.find(type).map(partition -> {
+            List<CompletableFuture<Void>> commits = new ArrayList<>();
+            StreamSupport.stream(keys.spliterator(), false)
+                    .collect(groupingBy(partition::index, TreeMap::new, toList()))
+                    .forEach((index, stripeKeys) -> commits.add(write(index, () -> {
+                        Map<Object, Object> stripe = partition.stripe(index);
+                        boolean removed = false;
+                        boolean expirations = false;
+                        for (K key : stripeKeys) {
+                            if (delete(type, stripe, key) != null) {
+                                removed = true;
+                                expirations = unexpire(type, partition, index, key) || expirations;
+                            }
+                        }
+                        return removed ? commitStripe(partition, index, expirations) : DONE;
+                    })));
+            return commits;
+        })).ifPresent(Committer::await);
     }
 
     /**
-     * Returns the number of key-value mappings in this map.
+     * Returns the number of key-value mappings in all partitions.
      *
-     * @return the number of key-value mappings in this map
+     * @return the number of key-value mappings in all partitions
      */
-    public synchronized int size() {
-        return this.data.size();
+    public int size() {
+        long expired = this.expiries.expired(System.currentTimeMillis());
+        return (int) (this.counts.values().stream().mapToLong(LongAdder::sum).sum() - expired);
     }
 
     /**
-     * Returns {@code true} if this map contains no key-value mappings.
+     * Returns the number of key-value mappings in the partition of the type.
      *
-     * @return {@code true} if this map contains no key-value mappings
+     * @param type the entity type
+     * @return the number of key-value mappings in the partition
      */
-    public synchronized boolean isEmpty() {
-        return this.data.isEmpty();
+    public int size(Class<?> type) {
+        Objects.requireNonNull(type, "type is required");
+        LongAdder count = this.counts.get(type.getName());
+        if (count == null) {
+            return 0;
+        }
+        long expired = this.expiries.contains(type) ? this.expiries.expired(type, System.currentTimeMillis()) : 0L;
+        return (int) (count.sum() - expired);
     }
 
     /**
-     * Returns a {@link Collection} view of the values contained in this map.
+     * Returns the number of entities of the partition of the type that match the predicate, the matches are counted
+     * instead of collected. Without a filter, {@link Condition#all()}, it is the {@link #size(Class)}, and when
+     * the secondary indexes on final fields cover the condition, see {@link Condition#isCovered(Indexes)}, it is
+     * the number of keys they return, without reading the entities, unless the type has entities with a time to live.
+     * Otherwise, the candidates of the indexes are read and tested, as a find does.
      *
-     * @param <V> the entity type
-     * @return a collection view of the values contained in this map
+     * @param type      the entity type
+     * @param predicate the filter
+     * @return the number of matches
      */
-    synchronized <V> Stream<V> values() {
-        if (data.isEmpty()) {
-            return Stream.empty();
+    long count(Class<?> type, Predicate<Object> predicate) {
+        Objects.requireNonNull(type, "type is required");
+        Objects.requireNonNull(predicate, "predicate is required");
+        return counted(type, predicate).orElseGet(() -> shared(() -> this.root.find(type).map(partition -> {
+            LongAdder matches = new LongAdder();
+            matches(type, partition, candidates(type, predicate), predicate, value -> matches.increment());
+            return matches.sum();
+        }).orElse(0L)));
+    }
+
+    /**
+     * Returns the number of matches when it is known without reading the entities, see {@link #count(Class, Predicate)}
+     */
+    private Optional<Long> counted(Class<?> type, Predicate<Object> predicate) {
+        if (Condition.all().equals(predicate)) {
+            return Optional.of((long) size(type));
         }
-        List<V> entries = new ArrayList<>();
-        entries.addAll((Collection<? extends V>) this.data.values());
-        return entries.stream();
+        if (this.expiries.contains(type)) {
+            return Optional.empty();
+        }
+        return shared(() -> candidates(type, predicate)
+                .filter(keys -> ((Condition) predicate).isCovered(indexes(type)))
+                .map(keys -> (long) keys.size()));
+    }
+
+    /**
+     * Returns {@code true} if there is no key-value mappings in any partition.
+     *
+     * @return {@code true} if there is no key-value mappings in any partition
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a {@link Stream} of the values contained in the partition of the type.
+     *
+     * @param type the entity type
+     * @param <V>  the entity type
+     * @return the values contained in the partition
+     */
+    <V> Stream<V> values(Class<?> type) {
+        Objects.requireNonNull(type, "type is required");
+        return values(type, Condition.all(), Collections.emptyList(), 0, 0);
+    }
+
+    <V> Stream<V> values(Class<?> type, Predicate<Object> predicate, List<Comparator<?>> sorts,
+                         long start, long limit) {
+        return this.<V>list(type, predicate, sorts, start, limit).stream();
+    }
+
+    /**
+     * Returns the values of the partition of the type that match the predicate, sorted and paginated.
+     * The result is materialized once, in a single list, and returned as an unmodifiable view,
+     * so the callers can consume it without another copy. The results of a type with entities with a time to live
+     * are not cached, since an entity might expire while its result is at the cache.
+     *
+     * @param type      the entity type
+     * @param predicate the filter
+     * @param sorts     the sorts
+     * @param start     the number of values to skip
+     * @param limit     the maximum number of values, zero is unlimited
+     * @param <V>       the entity type
+     * @return the values
+     */
+    <V> List<V> list(Class<?> type, Predicate<Object> predicate, List<Comparator<?>> sorts,
+                     long start, long limit) {
+
+        Objects.requireNonNull(type, "type is required");
+        Supplier<List<V>> query = () -> shared(() -> this.root.find(type)
+                .map(partition -> this.<V>select(partition, plan(type, predicate, sorts, start, limit), predicate, sorts))
+                .orElseGet(Collections::emptyList));
+        if (this.expiries.contains(type)) {
+            return query.get();
+        }
+        return this.cache.get(type, predicate, sorts, start, limit, query);
     }
 
-    synchronized <V> Stream<V> values(Predicate<Object> predicate, List<Comparator<?>> sorts,
-                                      long start, long limit) {
+    /**
+     * Returns the page of the query, see {@link #list(Class, Predicate, List, long, long)}, with the number of matches
+     * of the query. Without a filter, or when the secondary indexes cover the condition, the number comes from the
+     * counts, see {@link #count(Class, Predicate)}, and the page is read as a list; otherwise the matches are counted
+     * in the same pass that reads the page, so the query reads the entities once.
+     *
+     * @param type      the entity type
+     * @param predicate the filter
+     * @param sorts     the sorts
+     * @param start     the number of values to skip
+     * @param limit     the maximum number of values, zero is unlimited
+     * @param <V>       the entity type
+     * @return the {@link PageResult}
+     */
+    <V> PageResult<V> page(Class<?> type, Predicate<Object> predicate, List<Comparator<?>> sorts,
+                           long start, long limit) {
+        Objects.requireNonNull(type, "type is required");
+        Objects.requireNonNull(predicate, "predicate is required");
+        Objects.requireNonNull(sorts, "sorts is required");
+        Optional<Long> total = counted(type, predicate);
+        if (total.isPresent()) {
+            return new PageResult<>(list(type, predicate, sorts, start, limit), total.get());
+        }
+        return shared(() -> this.root.find(type).map(partition -> {
+            Optional<Set<Object>> candidates = candidates(type, predicate);
+            LongAdder matches = new LongAdder();
+            if (sorts.isEmpty()) {
+                List<V> entries = new ArrayList<>();
+                long end = limit > 0 ? start + limit : Long.MAX_VALUE;
+                this.<V>matches(type, partition, candidates, predicate, value -> {
+                    long position = matches.sum();
+                    matches.increment();
+                    if (position >= start && position < end) {
+                        entries.add(value);
+                    }
+                });
+                return new PageResult<>(Collections.unmodifiableList(entries), matches.sum());
+            }
+            if (limit > 0 && start + limit <= TOP_SELECTION_LIMIT) {
+                TopSelection<V> top = TopSelection.of((int) (start + limit), comparator(sorts));
+                this.<V>matches(type, partition, candidates, predicate, value -> {
+                    matches.increment();
+                    top.accept(value);
+                });
+                return new PageResult<>(page(top.toList(), start, limit), matches.sum());
+            }
+            List<V> entries = new ArrayList<>();
+            this.<V>matches(type, partition, candidates, predicate, entries::add);
+            entries.sort(comparator(sorts));
+            return new PageResult<>(page(entries, start, limit), entries.size());
+        }).orElseGet(() -> new PageResult<>(Collections.emptyList(), 0L)));
+    }
+
+    /**
+     * Returns the plan of the query, without reading the entities, see {@link #list(Class, Predicate, List, long, long)}
+     *
+     * @param type      the entity type
+     * @param predicate the filter
+     * @param sorts     the sorts
+     * @param start     the number of values to skip
+     * @param limit     the maximum number of values, zero is unlimited
+     * @return the {@link QueryPlan}
+     */
+    QueryPlan explain(Class<?> type, Predicate<Object> predicate, List<Comparator<?>> sorts, long start, long limit) {
+        Objects.requireNonNull(type, "type is required");
+        Objects.requireNonNull(predicate, "predicate is required");
+        Objects.requireNonNull(sorts, "sorts is required");
+        return shared(() -> plan(type, predicate, sorts, start, limit).plan());
+    }
+
+    /**
+     * Runs the query, without the {@link ResultCache}, and returns its plan with the number of entities read
+     * and the time of each stage: {@code plan}, {@code read}, where the entities are read and tested, and
+     * {@code sort}, where the matches are sorted when the plan is {@link QueryPlan.Order#SORT}.
+     *
+     * @param type      the entity type
+     * @param predicate the filter
+     * @param sorts     the sorts
+     * @param start     the number of values to skip
+     * @param limit     the maximum number of values, zero is unlimited
+     * @return the {@link QueryExplain}
+     */
+    QueryExplain analyze(Class<?> type, Predicate<Object> predicate, List<Comparator<?>> sorts, long start, long limit) {
+        Objects.requireNonNull(type, "type is required");
+        Objects.requireNonNull(predicate, "predicate is required");
+        Objects.requireNonNull(sorts, "sorts is required");
+        return shared(() -> {
+            Map<String, Duration> stages = new LinkedHashMap<>();
+            long begin = System.nanoTime();
+            PlannedQuery planned = plan(type, predicate, sorts, start, limit);
+            QueryPlan plan = planned.plan();
+            long chosen = System.nanoTime();
+            stages.put("plan", Duration.ofNanos(chosen - begin));
+            LongAdder scanned = new LongAdder();
+            LongAdder matched = new LongAdder();
+            Predicate<Object> counted = value -> {
+                scanned.increment();
+                boolean match = predicate.test(value);
+                if (match) {
+                    matched.increment();
+                }
+                return match;
+            };
+            List<Object> entries = this.root.find(type)
+                    .map(partition -> this.read(partition, planned, counted, sorts))
+                    .orElseGet(ArrayList::new);
+            long read = System.nanoTime();
+            stages.put("read", Duration.ofNanos(read - chosen));
+            if (QueryPlan.Order.SORT.equals(plan.order())) {
+                entries.sort(comparator(sorts));
+            }
+            stages.put("sort", Duration.ofNanos(System.nanoTime() - read));
+            int returned = page(entries, start, limit).size();
+            return new QueryExplain(plan, scanned.sum(), matched.sum(), returned, stages);
+        });
+    }
 
-        if (data.isEmpty()) {
-            return Stream.empty();
+    /**
+     * Remove items from the partition of the type with the predicate as filter, each stripe is committed
+     * on its own.
+     * <p>
+     * With a {@link StorageSettings#deleteBatch()}, the matches of a stripe are removed in batches, see
+     * {@link #removeInBatches(Class, Partition, int, List, Predicate, LongAdder)}.
+     *
+     * @param type      the entity type
+     * @param predicate the filter
+     * @return the number of removed entities
+     */
+    long remove(Class<?> type, Predicate<Object> predicate) {
+        Objects.requireNonNull(type, "type is required");
+        Objects.requireNonNull(predicate, "predicate is required");
+        Optional<Partition> found = shared(() -> this.root.find(type));
+        if (found.isEmpty()) {
+            return 0L;
         }
+        Partition partition = found.get();
+        Map<Integer, List<Object>> stripeKeys = shared(() -> candidates(type, predicate))
+                .map(keys -> keys.stream().collect(groupingBy(partition::index, TreeMap::new, toList())))
+                .orElse(null);
+        LongAdder removed = new LongAdder();
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        for (int index = 0; index < partition.stripes().size(); index++) {
+            List<Object> scope = stripeKeys == null ? null : stripeKeys.get(index);
+            if (stripeKeys != null && scope == null) {
+                continue;
+            }
+            int stripeIndex = index;
+            if (this.settings.isDeleteBatch()) {
+                removeInBatches(type, partition, stripeIndex, scope, predicate, removed);
+            } else {
+                commits.add(shared(() -> isCurrent(type, partition) ? write(stripeIndex, () -> {
+                    ScanCursor cursor = new ScanCursor(this.settings.scanBudget());
+                    List<Object> keys = new ArrayList<>();
+                    while (matchingKeys(partition, stripeIndex, scope, cursor, predicate, () -> false, keys)) {
+                        release(stripeIndex, cursor);
+                    }
+                    CompletableFuture<Void> commit = delete(type, partition, stripeIndex, keys, predicate, removed);
+                    release(stripeIndex, cursor);
+                    return commit;
+                }) : DONE));
+            }
+        }
+        Committer.await(commits);
+        return removed.sum();
+    }
 
-        Stream<V> values = (Stream<V>) this.data.values().stream()
-                .filter(predicate);
+    /**
+     * Removes the matches of a stripe in batches of the {@link StorageSettings#deleteBatch()}. The scan reads
+     * the keys of the matches under the read lock of the stripe and stops once a batch is full, the batch is removed
+     * under the write lock of the stripe on its own commit, then the scan resumes from its {@link ScanCursor}.
+     * So neither the keys of every match nor the lock of the stripe are held across the batches, and the reads and
+     * writes of the stripe run between them. An entity that no longer matches when its batch runs is kept.
+     */
+    private void removeInBatches(Class<?> type, Partition partition, int index, List<Object> scope,
+                                 Predicate<Object> predicate, LongAdder removed) {
+        int batch = this.settings.deleteBatch();
+        ScanCursor cursor = new ScanCursor(this.settings.scanBudget());
+        List<Object> keys = new ArrayList<>();
+        int from = 0;
+        boolean more;
+        do {
+            List<Object> range = scope == null ? null : scope.subList(from, Math.min(from + batch, scope.size()));
+            from += batch;
+            boolean remaining = scope != null && from < scope.size();
+            more = shared(() -> {
+                if (!isCurrent(type, partition)) {
+                    return false;
+                }
+                boolean paused = read(index, () -> matchingKeys(partition, index, range, cursor, predicate,
+                        () -> keys.size() >= batch, keys));
+                release(index, cursor);
+                return paused || remaining;
+            });
+            if (!keys.isEmpty() && (keys.size() >= batch || !more)) {
+                CompletableFuture<Void> commit = shared(() -> isCurrent(type, partition)
+                        ? write(index, () -> delete(type, partition, index, keys, predicate, removed))
+                        : DONE);
+                Committer.await(List.of(commit));
+                keys.clear();
+                LOGGER.fine(() -> "Removed " + removed.sum() + " entities of the type " + type.getName());
+            }
+        } while (more);
+    }
 
-        if (!sorts.isEmpty()) {
-            Comparator<V> comparator = sorts.stream()
-                    .map(c -> (Comparator<V>) c).reduce(Comparator::thenComparing)
-                    .orElseThrow();
-            values = values.sorted(comparator);
+    /**
+     * Checks if the partition is still the one of the type, since the lock is released between the stripes
+     * of a removal by a condition, and the partition might be cleared meanwhile
+     */
+    private boolean isCurrent(Class<?> type, Partition partition) {
+        return this.root.find(type).filter(current -> current == partition).isPresent();
+    }
+
+    /**
+     * Adds the keys of the stripe whose value matches the predicate and is not expired, from the scope of candidate
+     * keys, or from a scan when the scope is null, the caller holds the lock of the stripe and releases the segments
+     * the scan loaded, see {@link #release(int, ScanCursor)}
+     *
+     * @return {@code true} when the scan reached the pause before the end of the stripe
+     */
+    private boolean matchingKeys(Partition partition, int index, List<Object> scope, ScanCursor cursor,
+                                 Predicate<Object> predicate, BooleanSupplier pause, List<Object> keys) {
+        Map<Object, Object> stripe = partition.stripe(index);
+        if (stripe.isEmpty()) {
+            return false;
         }
-        if (start > 0) {
-            values = values.skip(start);
+        long now = System.currentTimeMillis();
+        if (scope == null) {
+            return scan(stripe, cursor, predicate, () -> false, pause, entry -> {
+                if (!partition.isExpired(index, entry.getKey(), now)) {
+                    keys.add(entry.getKey());
+                }
+            });
         }
-        if (limit > 0) {
-            values = values.limit(limit);
+        for (Object key : scope) {
+            Object value = stripe.get(key);
+            if (value != null && predicate.test(value) && !partition.isExpired(index, key, now)) {
+                keys.add(key);
+            }
         }
+        return false;
+    }
 
-        List<V> entries = new ArrayList<>();
-        entries.addAll(values.toList());
-        return entries.stream();
+    /**
+     * Removes the keys whose value still matches the predicate and commits the stripe, the caller holds the write
+     * lock of the stripe
+     */
+    private CompletableFuture<Void> delete(Class<?> type, Partition partition, int index, List<Object> keys,
+                                           Predicate<Object> predicate, LongAdder removed) {
+        Map<Object, Object> stripe = partition.stripe(index);
+        long count = 0;
+        boolean expirations = false;
+        for (Object key : keys) {
+            Object value = stripe.get(key);
+            if (value != null && predicate.test(value)) {
+                delete(type, stripe, key);
+                expirations = unexpire(type, partition, index, key) || expirations;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return DONE;
+        }
+        removed.add(count);
+        return commitStripe(partition, index, expirations);
+    }
 
+    /**
+     * Removes the expired entities of the {@link ExpiryQueue}, in batches of the {@link StorageSettings#deleteBatch()},
+     * or of the {@link StorageSettings#commitBatch()} without it. The entities of a stripe in a batch are removed
+     * under its write lock and on a single commit. An expiration that no longer matches the one stored at the stripe,
+     * since the key was written again, is skipped.
+     */
+    private void reap() {
+        long now = System.currentTimeMillis();
+        int batch = this.settings.isDeleteBatch() ? this.settings.deleteBatch() : this.settings.commitBatch();
+        List<ExpiryQueue.Expiration> expirations = this.expiries.due(now, batch);
+        while (!expirations.isEmpty()) {
+            List<ExpiryQueue.Expiration> due = expirations;
+            List<CompletableFuture<Void>> commits = new ArrayList<>();
+            long removed = shared(() -> reap(due, commits));
+            this.expiries.remove(due);
+            Committer.await(commits);
+            LOGGER.fine(() -> "Removed " + removed + " expired entities");
+            expirations = this.expiries.due(now, batch);
+        }
+    }
+
+    private long reap(List<ExpiryQueue.Expiration> expirations, List<CompletableFuture<Void>> commits) {
+        LongAdder removed = new LongAdder();
+        expirations.stream().collect(groupingBy(ExpiryQueue.Expiration::type, toList()))
+                .forEach((type, typeExpirations) -> this.root.find(type).ifPresent(partition -> typeExpirations.stream()
+                        .collect(groupingBy(e -> partition.index(e.key()), TreeMap::new, toList()))
+                        .forEach((index, stripeExpirations) -> commits.add(write(index, () -> {
+                            Map<Object, Object> stripe = partition.stripe(index);
+                            long count = 0;
+                            for (ExpiryQueue.Expiration expiration : stripeExpirations) {
+                                Long deadline = partition.expirations(index).get(expiration.key());
+                                if (deadline != null && deadline == expiration.deadline()) {
+                                    partition.unexpire(index, expiration.key());
+                                    delete(type, stripe, expiration.key());
+                                    count++;
+                                }
+                            }
+                            if (count == 0) {
+                                return DONE;
+                            }
+                            removed.add(count);
+                            return commitStripe(partition, index, true);
+                        })))));
+        return removed.sum();
     }
 
     /**
-     * Remove items from the Map with the predicate as filter
+     * Removes all entities from the partition of the type.
      *
-     * @param predicate the filter
+     * @param type the entity type
      */
-    synchronized void remove(Predicate<Object> predicate) {
-        List<Object> keys = this.data.entrySet().stream()
-                .filter(e -> predicate.test(e.getValue()))
-                .map(Map.Entry::getKey).toList();
-        this.remove(keys);
+    public void clear(Class<?> type) {
+        Objects.requireNonNull(type, "type is required");
+        Committer.await(exclusive(() -> {
+            if (this.root.remove(type)) {
+                indexes(type).clear();
+                this.expiries.clear(type);
+                this.counts.remove(type.getName());
+                this.cache.invalidate(type);
+                return List.of(this.commitRoot());
+            }
+            return List.of();
+        }));
     }
 
     /**
      * Removes all entities from this structure .
-     * The map will be empty after this call returns.
+     * The partitions will be empty after this call returns.
      */
     public void clear() {
-        this.data.clear();
-        this.commitMap();
+        Committer.await(exclusive(() -> {
+            this.root.clear();
+            this.indexes.values().forEach(Indexes::clear);
+            this.expiries.clear();
+            this.counts.clear();
+            this.cache.invalidate();
+            return List.of(this.commitRoot());
+        }));
+    }
+
+    /**
+     * Returns the cache of the query results, with its hits and misses
+     *
+     * @return the {@link ResultCache}
+     */
+    ResultCache cache() {
+        return this.cache;
+    }
+
+    /**
+     * Queues the stored expirations of the partition on startup. The partition of every type is queued, not only
+     * the ones of the entities, so the type is resolved from the class name the partition is stored under.
+     */
+    private void expire(String name, Partition partition) {
+        List<Map<Object, Long>> expirations = IntStream.range(0, partition.stripes().size())
+                .mapToObj(partition::expirations)
+                .filter(stripe -> !stripe.isEmpty())
+                .toList();
+        if (!expirations.isEmpty()) {
+            type(name).ifPresent(type -> expirations.forEach(stripe ->
+                    stripe.forEach((key, deadline) -> this.expiries.add(type, key, deadline))));
+        }
+    }
+
+    private static Optional<Class<?>> type(String name) {
+        ClassLoader loader = Optional.ofNullable(Thread.currentThread().getContextClassLoader())
+                .orElse(DataStorage.class.getClassLoader());
+        try {
+            return Optional.of(Class.forName(name, false, loader));
+        } catch (ClassNotFoundException exp) {
+            LOGGER.log(Level.WARNING, exp, () -> "The expirations of the type " + name
+                    + " are not queued, since the class is not found");
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stops the reaper of the {@link ExpiryQueue} and releases the {@link Committer}, the pending writes are committed
+     * before it returns.
+     */
+    void close() {
+        this.expiries.close();
+        this.committer.close();
     }
 
     @Override
@@ -221,33 +840,519 @@ class DataStorage {
             return false;
         }
         DataStorage that = (DataStorage) o;
-        return Objects.equals(data, that.data);
+        return Objects.equals(root, that.root);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(data);
+        return Objects.hashCode(root);
     }
 
     @Override
     public String toString() {
         return "DataStructure{" +
-                "data=" + data +
+                "root=" + root +
                 '}';
     }
 
-    static DataStorage of(Map<Object, Object> data, StorageManager manager) {
-        Objects.requireNonNull(data, "data is required");
+    static DataStorage of(DataRoot root, StorageManager manager, StorageSettings settings, Entities entities) {
+        Objects.requireNonNull(root, "root is required");
         Objects.requireNonNull(manager, "manager is required");
-        return new DataStorage(data, manager);
+        Objects.requireNonNull(settings, "settings is required");
+        Objects.requireNonNull(entities, "entities is required");
+        return new DataStorage(root, manager, settings, entities);
+    }
+
+    private CompletableFuture<Void> put(Class<?> type, Partition partition, int index, Object key, Object value,
+                                        long deadline) {
+        Map<Object, Object> stripe = partition.stripe(index);
+        Object oldValue = insert(stripe, key, value);
+        Object changed = oldValue == value ? value : stripe;
+        if (expire(type, partition, index, key, deadline)) {
+            return commit(index, List.of(changed, partition.expirations(index)));
+        }
+        return commit(index, List.of(changed));
+    }
+
+    private CompletableFuture<Void> put(Class<?> type, Partition partition, int index, Map<Object, Object> entities,
+                                        long deadline) {
+        // This is a little bit more complex when we want to avoid EagerStorer.
+        Map<Object, Object> stripe = partition.stripe(index);
+        List<Object> updatedInstances = new ArrayList<>();
+        boolean expirations = false;
+        for (Map.Entry<Object, Object> entry : entities.entrySet()) {
+            if (entry.getValue() == insert(stripe, entry.getKey(), entry.getValue())) {
+                updatedInstances.add(entry.getValue());
+            }
+            expirations = expire(type, partition, index, entry.getKey(), deadline) || expirations;
+        }
+        // Commit the stripe Map as not all Put operations are pure (same instance)
+        List<Object> instances = new ArrayList<>(updatedInstances);
+        if (updatedInstances.size() != entities.size()) {
+            instances.add(stripe);
+        }
+        if (expirations) {
+            instances.add(partition.expirations(index));
+        }
+        return commit(index, instances);
+    }
+
+    /**
+     * Sets the expiration of the key when there is a deadline, otherwise removes the one it might have,
+     * the caller holds the write lock of the stripe
+     *
+     * @return {@code true} if the expirations of the stripe changed
+     */
+    private boolean expire(Class<?> type, Partition partition, int index, Object key, long deadline) {
+        if (deadline > 0) {
+            partition.expire(index, key, deadline);
+            this.expiries.add(type, key, deadline);
+            return true;
+        }
+        return unexpire(type, partition, index, key);
+    }
+
+    private boolean unexpire(Class<?> type, Partition partition, int index, Object key) {
+        if (partition.unexpire(index, key)) {
+            this.expiries.remove(type, key);
+            return true;
+        }
+        return false;
     }
 
-    private void commitMap() {
-        persister.store(this.data);
+    private static long deadline(Duration ttl) {
+        Objects.requireNonNull(ttl, "ttl is required");
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("The ttl must be positive, the value: " + ttl);
+        }
+        long now = System.currentTimeMillis();
+        if (ttl.compareTo(Duration.ofMillis(Long.MAX_VALUE - now)) >= 0) {
+            return Long.MAX_VALUE;
+        }
+        return now + ttl.toMillis();
     }
 
-    private void commitEntity(Object entity) {
-        persister.store(entity);
+    private Object insert(Map<Object, Object> stripe, Object key, Object value) {
+        Object oldValue = stripe.put(key, value);
+        indexes(value.getClass()).put(key, value);
+        if (oldValue == null) {
+            count(value.getClass().getName()).increment();
+        }
+        this.cache.invalidate(value.getClass());
+        return oldValue;
+    }
+
+    private Object delete(Class<?> type, Map<Object, Object> stripe, Object key) {
+        Object oldValue = stripe.remove(key);
+        if (oldValue != null) {
+            indexes(type).remove(key);
+            count(type.getName()).decrement();
+            this.cache.invalidate(type);
+        }
+        return oldValue;
+    }
+
+    private LongAdder count(String type) {
+        return this.counts.computeIfAbsent(type, k -> new LongAdder());
+    }
+
+    private Indexes indexes(Class<?> type) {
+        return this.indexes.getOrDefault(type, Indexes.EMPTY);
+    }
+
+    private Optional<Set<Object>> candidates(Class<?> type, Predicate<Object> predicate) {
+        Indexes typeIndexes = indexes(type);
+        if (!(predicate instanceof Condition condition)) {
+            return Optional.empty();
+        }
+        return condition.keys(typeIndexes);
+    }
+
+    private <V> void matches(Class<?> type, Partition partition, Optional<Set<Object>> candidates,
+                             Predicate<Object> predicate, Consumer<V> matches) {
+        matches(type, partition, candidates, predicate, Long.MAX_VALUE, matches);
+    }
+
+    /**
+     * Reads the matches, in the order of the stripes, and stops as soon as the required number of matches is read,
+     * so a query for the first matches neither reads nor locks the remaining stripes. The expired entities are skipped
+     * when the type has entities with a time to live. A scan with a {@link StorageSettings#scanBudget()} releases
+     * the read lock of the stripe each time it releases the segments it loaded, then resumes from its cursor.
+     */
+    private <V> void matches(Class<?> type, Partition partition, Optional<Set<Object>> candidates,
+                             Predicate<Object> predicate, long required, Consumer<V> matches) {
+        boolean expiring = this.expiries.contains(type);
+        long now = System.currentTimeMillis();
+        AtomicLong found = new AtomicLong();
+        BooleanSupplier done = () -> found.get() >= required;
+        Consumer<Object> limited = value -> {
+            if (found.getAndIncrement() < required) {
+                matches.accept((V) value);
+            }
+        };
+        if (candidates.isPresent()) {
+            Map<Integer, List<Object>> stripeKeys = candidates.get().stream()
+                    .collect(groupingBy(partition::index, TreeMap::new, toList()));
+            for (Map.Entry<Integer, List<Object>> keys : stripeKeys.entrySet()) {
+                if (done.getAsBoolean()) {
+                    return;
+                }
+                read(keys.getKey(), () -> {
+                    Map<Object, Object> stripe = partition.stripe(keys.getKey());
+                    for (Object key : keys.getValue()) {
+                        if (done.getAsBoolean()) {
+                            break;
+                        }
+                        Object value = stripe.get(key);
+                        if (value != null && predicate.test(value)
+                                && !(expiring && partition.isExpired(keys.getKey(), key, now))) {
+                            limited.accept(value);
+                        }
+                    }
+                    return matches;
+                });
+            }
+            return;
+        }
+        List<Map<Object, Object>> stripes = partition.stripes();
+        for (int index = 0; index < stripes.size() && !done.getAsBoolean(); index++) {
+            Map<Object, Object> stripe = stripes.get(index);
+            int stripeIndex = index;
+            ScanCursor cursor = new ScanCursor(this.settings.scanBudget());
+            boolean paused;
+            do {
+                paused = read(index, () -> scan(stripe, cursor, predicate, done, () -> false, entry -> {
+                    if (!(expiring && partition.isExpired(stripeIndex, entry.getKey(), now))) {
+                        limited.accept(entry.getValue());
+                    }
+                }));
+                release(index, cursor);
+            } while (paused);
+        }
+    }
+
+    /**
+     * Scans the entries of a stripe whose value matches the predicate, from the position of the cursor, the caller
+     * holds the lock of the stripe. It reads the stripe segment by segment and moves the cursor past each entry it
+     * reads, so once the pause is reached it stops and returns {@code true}, to resume from the cursor after the caller
+     * released the lock. A parallel scan filters the entries in chunks of the {@link StorageSettings#parallelThreshold()},
+     * and checks the pause between the chunks.
+     * <p>
+     * With a {@link StorageSettings#scanBudget()}, the segments that were not loaded before the scan, once the entities
+     * they hold exceed the budget, are kept by the cursor, and the scan also pauses once the kept segments hold as many
+     * entities as the budget, for the caller to release them, see {@link #release(int, ScanCursor)}. So a full scan
+     * neither leaves the whole stripe in memory nor loads it at once.
+     */
+    private boolean scan(Map<Object, Object> stripe, ScanCursor cursor, Predicate<Object> predicate, BooleanSupplier done,
+                         BooleanSupplier pause, Consumer<Map.Entry<Object, Object>> matches) {
+        if (stripe.isEmpty()) {
+            return false;
+        }
+        boolean parallel = this.settings.isParallel(stripe.size());
+        if (!(stripe instanceof LazyHashMap<Object, Object> lazy)) {
+            filter(stripe.entrySet(), parallel, predicate, done, matches);
+            return false;
+        }
+        List<LazyHashMap.Entry<Object, Object>> chunk = new ArrayList<>();
+        for (LazyHashMap<Object, Object>.Segment<?> segment : lazy.segments()) {
+            if (done.getAsBoolean()) {
+                return false;
+            }
+            if (cursor.isPast(segment)) {
+                continue;
+            }
+            if (cursor.isFull()) {
+                filter(cursor, chunk, predicate, done, matches);
+                return !done.getAsBoolean();
+            }
+            if (!segment.isLoaded()) {
+                cursor.loaded(segment);
+            }
+            for (LazyHashMap.Entry<Object, Object> entry : segment.getData()) {
+                if (cursor.isRead(entry)) {
+                    continue;
+                }
+                if (parallel) {
+                    chunk.add(entry);
+                    continue;
+                }
+                if (done.getAsBoolean()) {
+                    return false;
+                }
+                if (pause.getAsBoolean()) {
+                    return true;
+                }
+                cursor.read(entry);
+                if (predicate.test(entry.getValue())) {
+                    matches.accept(entry);
+                }
+            }
+            cursor.finished(segment);
+            if (parallel && chunk.size() >= this.settings.parallelThreshold()) {
+                filter(cursor, chunk, predicate, done, matches);
+                if (pause.getAsBoolean()) {
+                    return true;
+                }
+            }
+        }
+        filter(cursor, chunk, predicate, done, matches);
+        return false;
+    }
+
+    /**
+     * Filters a chunk of a parallel scan and moves the cursor past its entries
+     */
+    private static void filter(ScanCursor cursor, List<LazyHashMap.Entry<Object, Object>> chunk,
+                               Predicate<Object> predicate, BooleanSupplier done,
+                               Consumer<Map.Entry<Object, Object>> matches) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        filter(chunk, true, predicate, done, matches);
+        chunk.forEach(cursor::read);
+        chunk.clear();
+    }
+
+    /**
+     * Releases the segments a scan loaded beyond the {@link StorageSettings#scanBudget()}, that its cursor kept.
+     * The segments are unloaded under the write lock of the stripe, since a concurrent scan of the stripe, under its
+     * read lock, might be reading a segment that this scan loaded, and a segment with changes that are not stored yet
+     * is kept.
+     */
+    private void release(int index, ScanCursor cursor) {
+        List<LazyHashMap<Object, Object>.Segment<?>> segments = cursor.release();
+        if (segments.isEmpty()) {
+            return;
+        }
+        write(index, () -> {
+            for (LazyHashMap<Object, Object>.Segment<?> segment : segments) {
+                if (segment.isLoaded() && !segment.isModified()) {
+                    segment.unloadSegment();
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Filters the entries, in parallel when the stripe reaches the {@link StorageSettings#parallelThreshold()}.
+     * The entries are copied to an array, that splits evenly across the workers, and the stream keeps
+     * the encounter order, so the result is the same as a sequential scan. It stops once the matches are done.
+     */
+    private static void filter(Collection<? extends Map.Entry<Object, Object>> entries, boolean parallel,
+                               Predicate<Object> predicate, BooleanSupplier done,
+                               Consumer<Map.Entry<Object, Object>> matches) {
+        if (!parallel) {
+            for (Map.Entry<Object, Object> entry : entries) {
+                if (done.getAsBoolean()) {
+                    return;
+                }
+                if (predicate.test(entry.getValue())) {
+                    matches.accept(entry);
+                }
+            }
+            return;
+        }
+        Arrays.stream(entries.toArray(new Map.Entry[0])).parallel().map(e -> (Map.Entry<Object, Object>) e)
+                .takeWhile(entry -> !done.getAsBoolean())
+                .filter(entry -> predicate.test(entry.getValue())).forEachOrdered(matches);
+    }
+
+    /**
+     * Plans the query: an equals or in condition on the id reads its keys, another condition might read the keys
+     * of an index, and a condition without them scans every entity. A sorted index is read in order when it holds
+     * every entity, and there is either a scan, or a limit and the keys of an index are many enough for the walk
+     * to be cheaper, see {@link #isWalkCheaper(long, long, long)}. The keys of the id are never walked, since
+     * reading a few keys is cheaper than walking the index.
+     */
+    private PlannedQuery plan(Class<?> type, Predicate<Object> predicate, List<Comparator<?>> sorts,
+                              long start, long limit) {
+        Optional<Set<Object>> keys = candidates(type, predicate);
+        QueryPlan.Access access = keys.isEmpty() ? QueryPlan.Access.SCAN
+                : ((Condition) predicate).access(indexes(type));
+        Optional<EntityIndex> sorted = sortedIndex(type, sorts)
+                .filter(index -> keys.isEmpty() || (limit > 0 && !QueryPlan.Access.KEY.equals(access)
+                        && isWalkCheaper(keys.get().size(), start + limit, index.size())))
+                .filter(index -> index.size() == size(type));
+        QueryPlan.Order order;
+        if (sorted.isPresent()) {
+            order = QueryPlan.Order.INDEX;
+        } else if (sorts.isEmpty()) {
+            order = QueryPlan.Order.NONE;
+        } else if (limit > 0 && start + limit <= TOP_SELECTION_LIMIT) {
+            order = QueryPlan.Order.TOP;
+        } else {
+            order = QueryPlan.Order.SORT;
+        }
+        long estimated = keys.map(k -> (long) k.size()).orElseGet(() -> (long) size(type));
+        QueryPlan plan = new QueryPlan(type, access, order, estimated, start, limit,
+                sorted.map(index -> index.field().name()).orElse(null));
+        return new PlannedQuery(plan, keys);
+    }
+
+    /**
+     * Checks if walking the sorted index in order, until the page is complete, is cheaper than reading every candidate
+     * and ordering them. Where the candidates spread evenly over the index, the walk reads about
+     * {@code required * size / candidates} entries of the index, against the {@code candidates} read otherwise.
+     */
+    private static boolean isWalkCheaper(long candidates, long required, long size) {
+        return candidates >= required && (double) candidates * candidates > (double) required * size;
+    }
+
+    private <V> List<V> select(Partition partition, PlannedQuery planned, Predicate<Object> predicate,
+                               List<Comparator<?>> sorts) {
+        QueryPlan plan = planned.plan();
+        List<V> entries = read(partition, planned, predicate, sorts);
+        if (QueryPlan.Order.SORT.equals(plan.order())) {
+            entries.sort(comparator(sorts));
+        }
+        return page(entries, plan.start(), plan.limit());
+    }
+
+    /**
+     * Reads the matches of the plan, in order unless the plan sorts them afterwards, see {@link QueryPlan.Order#SORT}
+     */
+    private <V> List<V> read(Partition partition, PlannedQuery planned, Predicate<Object> predicate,
+                             List<Comparator<?>> sorts) {
+        QueryPlan plan = planned.plan();
+        Optional<Set<Object>> candidates = planned.keys();
+        switch (plan.order()) {
+            case INDEX -> {
+                return ordered(partition, sortedIndex(plan.type(), sorts).orElseThrow(), candidates, predicate, sorts,
+                        plan.start(), plan.limit());
+            }
+            case TOP -> {
+                TopSelection<V> top = TopSelection.of((int) (plan.start() + plan.limit()), comparator(sorts));
+                matches(plan.type(), partition, candidates, predicate, top);
+                return top.toList();
+            }
+            case NONE -> {
+                List<V> entries = new ArrayList<>();
+                long required = plan.limit() > 0 ? plan.start() + plan.limit() : Long.MAX_VALUE;
+                this.<V>matches(plan.type(), partition, candidates, predicate, required, entries::add);
+                return entries;
+            }
+            default -> {
+                List<V> entries = new ArrayList<>();
+                this.<V>matches(plan.type(), partition, candidates, predicate, entries::add);
+                return entries;
+            }
+        }
+    }
+
+    /**
+     * Reads the entities in the order of the sorted index of the first sort, the entities with the same value
+     * are sorted by the remaining sorts, and it stops as soon as the page is complete.
+     */
+    private <V> List<V> ordered(Partition partition, EntityIndex index, Optional<Set<Object>> candidates,
+                                Predicate<Object> predicate, List<Comparator<?>> sorts, long start, long limit) {
+        FieldComparator order = (FieldComparator) sorts.get(0);
+        List<Comparator<?>> ties = sorts.subList(1, sorts.size());
+        long required = limit > 0 ? start + limit : Long.MAX_VALUE;
+        List<V> entries = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<Set<Object>> values = index.ordered(order.ascending()).orElseThrow().iterator();
+        while (values.hasNext() && entries.size() < required) {
+            List<V> bucket = new ArrayList<>();
+            for (Object key : values.next()) {
+                if (candidates.isPresent() && !candidates.get().contains(key)) {
+                    continue;
+                }
+                int stripe = partition.index(key);
+                Object value = read(stripe, () -> partition.isExpired(stripe, key, now) ? null
+                        : partition.stripe(stripe).get(key));
+                if (value != null && predicate.test(value)) {
+                    bucket.add((V) value);
+                }
+            }
+            if (!ties.isEmpty()) {
+                bucket.sort(comparator(ties));
+            }
+            entries.addAll(bucket);
+        }
+        return entries;
+    }
+
+    private Optional<EntityIndex> sortedIndex(Class<?> type, List<Comparator<?>> sorts) {
+        if (!sorts.isEmpty() && sorts.get(0) instanceof FieldComparator order) {
+            return indexes(type).find(order.field()).filter(SortedIndex.class::isInstance);
+        }
+        return Optional.empty();
+    }
+
+    private static <V> Comparator<V> comparator(List<Comparator<?>> sorts) {
+        return sorts.stream()
+                .map(c -> (Comparator<V>) c).reduce(Comparator::thenComparing)
+                .orElseThrow();
+    }
+
+    /**
+     * Copies the page out of the values, so a cached page neither holds the values beyond it nor sees them change
+     */
+    private static <V> List<V> page(List<V> values, long start, long limit) {
+        int from = (int) Math.min(Math.max(start, 0), values.size());
+        int to = limit > 0 ? (int) Math.min(from + limit, values.size()) : values.size();
+        return List.copyOf(values.subList(from, to));
+    }
+
+    private <T> T shared(Supplier<T> action) {
+        return locked(this.lock.readLock(), action);
+    }
+
+    private <T> T exclusive(Supplier<T> action) {
+        return locked(this.lock.writeLock(), action);
+    }
+
+    private <T> T read(int index, Supplier<T> action) {
+        return locked(stripeLock(index).readLock(), action);
+    }
+
+    private <T> T write(int index, Supplier<T> action) {
+        return locked(stripeLock(index).writeLock(), action);
+    }
+
+    private ReadWriteLock stripeLock(int index) {
+        return this.locks[index % this.locks.length];
+    }
+
+    private static <T> T locked(Lock lock, Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Submits the instances changed under the write lock of the stripe, the committer reads them under the read lock
+     * of the stripe, and the writer waits for the commit after it releases the lock.
+     */
+    private CompletableFuture<Void> commit(int index, Collection<?> instances) {
+        return instances.isEmpty() ? DONE : committer.submit(instances, stripeLock(index).readLock());
+    }
+
+    /**
+     * Submits the instances changed under the exclusive lock, the committer reads them under it
+     */
+    private CompletableFuture<Void> commitExclusive(Collection<?> instances) {
+        return instances.isEmpty() ? DONE : committer.submit(instances, this.lock.writeLock());
+    }
+
+    private CompletableFuture<Void> commitRoot() {
+        return commitExclusive(List.of(this.root.holder()));
+    }
+
+    /**
+     * Stores the stripe, and its expirations in the same commit when they changed, where the
+     * {@link one.microstream.collections.lazy.LazyHashMap} handler writes the segment table and only the segments
+     * changed since the last store, so the cost does not grow with the unchanged entries.
+     */
+    private CompletableFuture<Void> commitStripe(Partition partition, int index, boolean expirations) {
+        if (expirations) {
+            return commit(index, List.of(partition.stripe(index), partition.expirations(index)));
+        }
+        return commit(index, List.of(partition.stripe(index)));
     }
 
 }
@@ -17,37 +17,66 @@ package expert.os.integration.microstream;
 
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
 import jakarta.enterprise.inject.Produces;
 import jakarta.inject.Inject;
 import one.microstream.collections.lazy.LazyHashMap;
 import one.microstream.storage.types.StorageManager;
 
-import java.util.Map;
+import java.util.List;
 import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 @ApplicationScoped
 class DataStructureSupplier implements Supplier<DataStorage> {
 
+    private static final Logger LOGGER = Logger.getLogger(DataStructureSupplier.class.getName());
+
     @Inject
     private StorageManager manager;
 
+    @Inject
+    private StorageSettings settings;
+
+    @Inject
+    private Entities entities;
+
     @Override
     @Produces
     @ApplicationScoped
     public DataStorage get() {
 
         Object root = manager.root();
-        Map<Object, Object> data;
+        DataRoot data;
         if (root == null) {
-            data = new LazyHashMap<>();
+            data = new DataRoot();
             manager.setRoot(data);
             manager.storeRoot();
+        } else if (root instanceof DataRoot dataRoot) {
+            data = dataRoot;
         } else if (root instanceof LazyHashMap dataStorage) {
-            data = dataStorage;
+            LOGGER.info("Migrating the single map root structure to the partitioned root, one map per entity type, " +
+                    "with " + dataStorage.size() + " entities");
+            data = DataRoot.of(dataStorage, settings.stripes());
+            manager.setRoot(data);
+            manager.storeRoot();
         } else {
             throw new IllegalArgumentException("The current root structure is incompatible with DataStructure. " +
                     "The current structure class: " + root.getClass());
         }
-        return DataStorage.of(data, manager);
+        if (data.restripe(settings.stripes())) {
+            LOGGER.info("Hashing the entities to " + settings.stripes() + " stripes for each entity type");
+            manager.store(data.holder());
+        }
+        List<Partition> upgraded = data.upgrade();
+        if (!upgraded.isEmpty()) {
+            LOGGER.info("Creating the expirations of " + upgraded.size() + " entity types");
+            manager.storeAll(upgraded);
+        }
+        return DataStorage.of(data, manager, settings, entities);
+    }
+
+    public void dispose(@Disposes DataStorage data) {
+        data.close();
     }
 }
@@ -0,0 +1,49 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import one.microstream.persistence.types.Persister;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The {@link Committer} where each call is a commit on its own at the {@link Persister}.
+ *
+ * @param persister the persister
+ */
+record DirectCommitter(Persister persister) implements Committer {
+
+    /**
+     * Stores the instances under the guard before it returns, since the writer holds the lock of the instances,
+     * the guard is either the same lock or its read lock.
+     */
+    @Override
+    public CompletableFuture<Void> submit(Collection<?> instances, Lock guard) {
+        guard.lock();
+        try {
+            if (instances.size() == 1) {
+                this.persister.store(instances.iterator().next());
+            } else {
+                this.persister.storeAll(instances);
+            }
+        } finally {
+            guard.unlock();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
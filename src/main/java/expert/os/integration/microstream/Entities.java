@@ -15,6 +15,8 @@
 
 package expert.os.integration.microstream;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -43,6 +45,10 @@ class Entities {
         return Optional.ofNullable(this.entities.get(type));
     }
 
+    Collection<EntityMetadata> values() {
+        return Collections.unmodifiableCollection(this.entities.values());
+    }
+
     static Entities of(Set<Class<?>> entities) {
         Objects.requireNonNull(entities, "entities is required");
         return new Entities(entities.stream()
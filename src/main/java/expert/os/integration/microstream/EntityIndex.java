@@ -0,0 +1,94 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A secondary index of a single field, from the field value to the keys of the entities with that value.
+ * The implementations are thread-safe, the writes of a key are serialized by the lock of its stripe.
+ */
+interface EntityIndex {
+
+    /**
+     * The indexed field
+     *
+     * @return the field
+     */
+    FieldMetadata field();
+
+    /**
+     * Indexes the entity, replacing the previous value of the key
+     *
+     * @param key    the key
+     * @param entity the entity
+     */
+    void put(Object key, Object entity);
+
+    /**
+     * Removes the key from the index
+     *
+     * @param key the key
+     */
+    void remove(Object key);
+
+    /**
+     * Removes every key from the index
+     */
+    void clear();
+
+    /**
+     * Returns the keys of the entities where the field is equal to the value
+     *
+     * @param value the value
+     * @return the keys
+     */
+    Set<Object> keys(Object value);
+
+    /**
+     * Returns the number of indexed keys, the keys where the field is not null
+     *
+     * @return the number of indexed keys
+     */
+    int size();
+
+    /**
+     * Returns the keys of the entities where the field is between the bounds, a null bound is unbounded.
+     * The default implementation cannot answer a range, so it returns {@link Optional#empty()}.
+     *
+     * @param from          the lower bound
+     * @param fromInclusive if the lower bound is included
+     * @param to            the upper bound
+     * @param toInclusive   if the upper bound is included
+     * @return the keys or {@link Optional#empty()}
+     */
+    default Optional<Set<Object>> range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the keys grouped by field value, in the order of the field.
+     * The default implementation has no order, so it returns {@link Optional#empty()}.
+     *
+     * @param ascending the direction
+     * @return the keys in order or {@link Optional#empty()}
+     */
+    default Optional<Stream<Set<Object>>> ordered(boolean ascending) {
+        return Optional.empty();
+    }
+}
@@ -22,18 +22,26 @@ import jakarta.nosql.Id;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Predicate;
 
 
 /**
  * This instance is the meta-info of a loaded class that has the  {@link jakarta.nosql.Entity} annotation.
  * It represents the information of an entity on Jakarta NoSQL as metadata.
+ * <p>
+ * Each field has an ordinal, the id is zero and the columns follow in the declaration order, that the per field
+ * structures, such as {@link Indexes}, use as a position, and the fields are indexed by name, so a lookup by name
+ * takes constant time.
  */
-record EntityMetadata(FieldMetadata id, List<FieldMetadata> fields, Class<?> type) {
+record EntityMetadata(FieldMetadata id, List<FieldMetadata> fields, Class<?> type, Map<String, FieldMetadata> names) {
 
+    EntityMetadata(FieldMetadata id, List<FieldMetadata> fields, Class<?> type) {
+        this(id, fields, type, names(id, fields));
+    }
 
     @Override
     public List<FieldMetadata> fields() {
@@ -42,15 +50,7 @@ record EntityMetadata(FieldMetadata id, List<FieldMetadata> fields, Class<?> typ
 
 
     Optional<FieldMetadata> field(String name) {
-        if (id.name().equals(name)) {
-            return Optional.ofNullable(id);
-        }
-        return this.fields.stream().filter(f -> f.name().equals(name))
-                .findFirst();
-    }
-
-    <T> Predicate<T> isInstance() {
-        return this.type::isInstance;
+        return Optional.ofNullable(this.names.get(name));
     }
 
     <T> Entry entry(T entity) {
@@ -66,9 +66,9 @@ record EntityMetadata(FieldMetadata id, List<FieldMetadata> fields, Class<?> typ
         for (Field field : type.getDeclaredFields()) {
             field.setAccessible(true);
             if (field.getAnnotation(Id.class) != null) {
-                id = FieldMetadata.of(field);
+                id = FieldMetadata.of(field, 0);
             } else if (field.getAnnotation(Column.class) != null) {
-                fields.add(FieldMetadata.of(field));
+                fields.add(FieldMetadata.of(field, fields.size() + 1));
             }
         }
         if (id == null) {
@@ -78,4 +78,10 @@ record EntityMetadata(FieldMetadata id, List<FieldMetadata> fields, Class<?> typ
         return new EntityMetadata(id, fields, type);
     }
 
+    private static Map<String, FieldMetadata> names(FieldMetadata id, List<FieldMetadata> fields) {
+        Map<String, FieldMetadata> names = new HashMap<>();
+        fields.forEach(field -> names.put(field.name(), field));
+        names.put(id.name(), id);
+        return Collections.unmodifiableMap(names);
+    }
 }
@@ -0,0 +1,296 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The expirations of the entities with a time to live, ordered by the instant they expire, and the reaper
+ * that removes them. The expirations are stored at the {@link Partition}, this queue is rebuilt from them
+ * on startup and only orders them in memory.
+ * <p>
+ * The queue holds a single expiration per key: a write of the key replaces it, and a removal of the key removes it.
+ * The expirations that are due move, in the order they expire, from the pending ones to the expired ones, which
+ * the reaper removes, so the number of expired entities of a type that the reaper did not remove yet is a counter
+ * instead of a scan of the queue.
+ * <p>
+ * The reaper thread is scheduled on the first expiration, every {@link StorageSettings#expiryInterval()}
+ * milliseconds, so there is no thread while no entity has a time to live.
+ */
+final class ExpiryQueue implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpiryQueue.class.getName());
+
+    private static final Comparator<Expiration> ORDER = Comparator.comparingLong(Expiration::deadline)
+            .thenComparingLong(Expiration::sequence);
+
+    private final NavigableSet<Expiration> pending;
+
+    private final NavigableSet<Expiration> expired;
+
+    private final Map<Key, Expiration> current;
+
+    private final Map<Class<?>, Long> counts;
+
+    private final Set<Class<?>> types;
+
+    private final Lock lock;
+
+    private final AtomicBoolean started;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final long interval;
+
+    private final Runnable reaper;
+
+    private long sequence;
+
+    ExpiryQueue(long interval, Runnable reaper) {
+        this.interval = interval;
+        this.reaper = Objects.requireNonNull(reaper, "reaper is required");
+        this.pending = new TreeSet<>(ORDER);
+        this.expired = new TreeSet<>(ORDER);
+        this.current = new HashMap<>();
+        this.counts = new HashMap<>();
+        this.types = ConcurrentHashMap.newKeySet();
+        this.lock = new ReentrantLock();
+        this.started = new AtomicBoolean();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "microstream-expiry-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds the expiration of the key, replacing the previous one of the key, and schedules the reaper
+     * if it is the first one
+     *
+     * @param type     the entity type
+     * @param key      the key
+     * @param deadline the epoch millisecond when the entity expires
+     */
+    void add(Class<?> type, Object key, long deadline) {
+        this.types.add(type);
+        locked(() -> {
+            Expiration expiration = new Expiration(deadline, type, key, ++this.sequence);
+            discard(this.current.put(new Key(type, key), expiration));
+            this.pending.add(expiration);
+            return null;
+        });
+        if (this.started.compareAndSet(false, true)) {
+            this.scheduler.scheduleWithFixedDelay(this::reap, this.interval, this.interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Removes the expiration of the key, if there is one
+     *
+     * @param type the entity type
+     * @param key  the key
+     */
+    void remove(Class<?> type, Object key) {
+        locked(() -> {
+            discard(this.current.remove(new Key(type, key)));
+            return null;
+        });
+    }
+
+    /**
+     * Removes the expirations, unless the key has a newer one
+     *
+     * @param expirations the expirations
+     */
+    void remove(Collection<Expiration> expirations) {
+        locked(() -> {
+            for (Expiration expiration : expirations) {
+                if (this.current.remove(new Key(expiration.type(), expiration.key()), expiration)) {
+                    discard(expiration);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Checks if any entity of the type was written with a time to live
+     *
+     * @param type the entity type
+     * @return {@code true} if the type has expirations
+     */
+    boolean contains(Class<?> type) {
+        return this.types.contains(type);
+    }
+
+    /**
+     * Returns the number of entities of the type whose expiration is not after the instant, and that are not removed
+     *
+     * @param type the entity type
+     * @param now  the epoch millisecond
+     * @return the number of expired entities
+     */
+    long expired(Class<?> type, long now) {
+        return locked(() -> {
+            advance(now);
+            return this.counts.getOrDefault(type, 0L);
+        });
+    }
+
+    /**
+     * Returns the number of entities whose expiration is not after the instant, and that are not removed
+     *
+     * @param now the epoch millisecond
+     * @return the number of expired entities
+     */
+    long expired(long now) {
+        return locked(() -> {
+            advance(now);
+            return (long) this.expired.size();
+        });
+    }
+
+    /**
+     * Returns the first expirations that are not after the instant, they stay at the queue until they are removed,
+     * see {@link #remove(Collection)}
+     *
+     * @param now the epoch millisecond
+     * @param max the maximum number of expirations
+     * @return the expirations, in the order they expire
+     */
+    List<Expiration> due(long now, int max) {
+        return locked(() -> {
+            advance(now);
+            List<Expiration> expirations = new ArrayList<>();
+            Iterator<Expiration> iterator = this.expired.iterator();
+            while (iterator.hasNext() && expirations.size() < max) {
+                expirations.add(iterator.next());
+            }
+            return expirations;
+        });
+    }
+
+    /**
+     * Removes the expirations of the type
+     *
+     * @param type the entity type
+     */
+    void clear(Class<?> type) {
+        this.types.remove(type);
+        locked(() -> {
+            this.pending.removeIf(expiration -> expiration.type().equals(type));
+            this.expired.removeIf(expiration -> expiration.type().equals(type));
+            this.current.keySet().removeIf(key -> key.type().equals(type));
+            this.counts.remove(type);
+            return null;
+        });
+    }
+
+    /**
+     * Removes all expirations
+     */
+    void clear() {
+        this.types.clear();
+        locked(() -> {
+            this.pending.clear();
+            this.expired.clear();
+            this.current.clear();
+            this.counts.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Stops the reaper, a run in progress completes before it returns
+     */
+    @Override
+    public void close() {
+        this.scheduler.shutdown();
+        try {
+            this.scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Moves the pending expirations that are not after the instant to the expired ones, each one moves once
+     */
+    private void advance(long now) {
+        while (!this.pending.isEmpty() && this.pending.first().deadline() <= now) {
+            Expiration expiration = this.pending.pollFirst();
+            this.expired.add(expiration);
+            this.counts.merge(expiration.type(), 1L, Long::sum);
+        }
+    }
+
+    private void discard(Expiration expiration) {
+        if (expiration != null && !this.pending.remove(expiration) && this.expired.remove(expiration)) {
+            this.counts.computeIfPresent(expiration.type(), (type, count) -> count == 1L ? null : count - 1L);
+        }
+    }
+
+    private <T> T locked(Supplier<T> action) {
+        this.lock.lock();
+        try {
+            return action.get();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void reap() {
+        try {
+            this.reaper.run();
+        } catch (RuntimeException exp) {
+            LOGGER.log(Level.WARNING, "The removal of the expired entities failed", exp);
+        }
+    }
+
+    private record Key(Class<?> type, Object key) {
+    }
+
+    /**
+     * The expiration of a key
+     *
+     * @param deadline the epoch millisecond when the entity expires
+     * @param type     the entity type
+     * @param key      the key
+     * @param sequence the order of the writes with the same deadline
+     */
+    record Expiration(long deadline, Class<?> type, Object key, long sequence) {
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.nosql.QueryMapper;
+
+import java.lang.reflect.Method;
+
+/**
+ * Explains the queries of the Microstream template and repositories, for the queries of
+ * {@link jakarta.nosql.Template#select(Class)} and the query methods of a repository, such as {@code findBy},
+ * {@code countBy}, {@code existsBy} and {@code deleteBy}.
+ * <p>
+ * The {@code explain} methods return the {@link QueryPlan}, chosen without reading the entities. The {@code analyze}
+ * methods run the query, without the result cache, and return the {@link QueryExplain}, the plan with the number of
+ * entities read, matched and returned, and the time of each stage. The {@link #cache()} method returns the hits and
+ * misses of the cache of the query results.
+ * <pre>{@code
+ * @Inject
+ * Explainer explainer;
+ *
+ * QueryPlan plan = explainer.explain(template.select(Book.class).where("title").eq("Effective Java"));
+ * QueryExplain run = explainer.analyze(Book.class, Library.class.getMethod("findByTitle", String.class), "Effective Java");
+ * }</pre>
+ */
+@ApplicationScoped
+public class Explainer {
+
+    private MicrostreamTemplate template;
+
+    @Inject
+    Explainer(MicrostreamTemplate template) {
+        this.template = template;
+    }
+
+    @Deprecated
+    Explainer() {
+    }
+
+    /**
+     * Returns the plan of the query, without reading the entities
+     *
+     * @param query the query of {@link jakarta.nosql.Template#select(Class)} at any step
+     * @return the {@link QueryPlan}
+     * @throws NullPointerException     when query is null
+     * @throws IllegalArgumentException when the query does not come from the Microstream template
+     */
+    public QueryPlan explain(QueryMapper.MapperQueryBuild query) {
+        return this.template.explain(query);
+    }
+
+    /**
+     * Runs the query, without the result cache, and returns its plan with the entities read
+     *
+     * @param query the query of {@link jakarta.nosql.Template#select(Class)} at any step
+     * @return the {@link QueryExplain}
+     * @throws NullPointerException     when query is null
+     * @throws IllegalArgumentException when the query does not come from the Microstream template
+     */
+    public QueryExplain analyze(QueryMapper.MapperQueryBuild query) {
+        return this.template.analyze(query);
+    }
+
+    /**
+     * Returns the plan of the query of the repository method, with its parameters, without reading the entities
+     *
+     * @param type   the entity type of the repository
+     * @param method the repository method
+     * @param params the parameters of the method
+     * @param <T>    the entity type
+     * @return the {@link QueryPlan}
+     * @throws NullPointerException     when type or method is null
+     * @throws IllegalArgumentException when the method is not a query method
+     */
+    public <T> QueryPlan explain(Class<T> type, Method method, Object... params) {
+        return this.template.explain(type, method, params);
+    }
+
+    /**
+     * Runs the query of the repository method, with its parameters, without the result cache, and returns its plan
+     * with the entities read. A {@code deleteBy} method reads the entities it would remove, without removing them.
+     *
+     * @param type   the entity type of the repository
+     * @param method the repository method
+     * @param params the parameters of the method
+     * @param <T>    the entity type
+     * @return the {@link QueryExplain}
+     * @throws NullPointerException     when type or method is null
+     * @throws IllegalArgumentException when the method is not a query method
+     */
+    public <T> QueryExplain analyze(Class<T> type, Method method, Object... params) {
+        return this.template.analyze(type, method, params);
+    }
+
+    /**
+     * Returns the statistics of the cache of the query results, that are zero while the cache is disabled
+     *
+     * @return the {@link CacheStats}
+     */
+    public CacheStats cache() {
+        return this.template.cache();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.lang.reflect.Field;
+import java.util.Objects;
+
+/**
+ * Reads the value of a field from the entity. It is on the innermost loop of every predicate, comparator and index,
+ * so the primitive fields have their own readers that do not box the value.
+ */
+interface FieldAccessor {
+
+    /**
+     * Returns the value of the field
+     *
+     * @param entity the entity
+     * @return the value, boxed when the field is primitive
+     */
+    Object get(Object entity);
+
+    /**
+     * Returns the value of an {@code int} field
+     *
+     * @param entity the entity
+     * @return the value
+     */
+    default int getInt(Object entity) {
+        return (Integer) get(entity);
+    }
+
+    /**
+     * Returns the value of a {@code long} field
+     *
+     * @param entity the entity
+     * @return the value
+     */
+    default long getLong(Object entity) {
+        return (Long) get(entity);
+    }
+
+    /**
+     * Returns the value of a {@code boolean} field
+     *
+     * @param entity the entity
+     * @return the value
+     */
+    default boolean getBoolean(Object entity) {
+        return (Boolean) get(entity);
+    }
+
+    /**
+     * Creates the accessor of the field with a {@link java.lang.invoke.MethodHandle}, or with reflection
+     * when the field cannot be unreflected.
+     *
+     * @param field the field, already accessible
+     * @return the {@link FieldAccessor}
+     * @throws NullPointerException when field is null
+     */
+    static FieldAccessor of(Field field) {
+        Objects.requireNonNull(field, "field is required");
+        return MethodHandleAccessor.of(field).orElseGet(() -> new ReflectionAccessor(field));
+    }
+}
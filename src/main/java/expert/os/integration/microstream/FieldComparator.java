@@ -0,0 +1,43 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * The {@link Comparator} of the entities by a field, it keeps the field and the direction,
+ * so {@link DataStorage} can read the entities in order from a {@link SortedIndex} instead of a sort.
+ *
+ * @param field     the field
+ * @param ascending the direction
+ */
+record FieldComparator(FieldMetadata field, boolean ascending) implements Comparator<Object> {
+
+    FieldComparator {
+        Objects.requireNonNull(field, "field is required");
+    }
+
+    @Override
+    public int compare(Object first, Object second) {
+        return ascending ? field.compare(first, second) : field.compare(second, first);
+    }
+
+    @Override
+    public FieldComparator reversed() {
+        return new FieldComparator(field, !ascending);
+    }
+}
@@ -15,21 +15,23 @@
 
 package expert.os.integration.microstream;
 
-import jakarta.data.exceptions.MappingException;
-
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.Comparator;
 import java.util.Objects;
-import java.util.function.Function;
 
 final class FieldMetadata {
 
     private final Field field;
     private final String name;
+    private final FieldAccessor accessor;
+    private final int ordinal;
 
-    private FieldMetadata(Field field, String name) {
+    private FieldMetadata(Field field, String name, FieldAccessor accessor, int ordinal) {
         this.field = field;
         this.name = name;
+        this.accessor = accessor;
+        this.ordinal = ordinal;
     }
 
     Field field() {
@@ -40,22 +42,68 @@ final class FieldMetadata {
         return name;
     }
 
+    /**
+     * Checks if the field is final, such as the fields of a record, so its value never changes in place
+     *
+     * @return {@code true} when the field is final
+     */
+    boolean isFinal() {
+        return Modifier.isFinal(field.getModifiers());
+    }
+
+    /**
+     * The position of the field at the entity, see {@link EntityMetadata#field(int)}
+     *
+     * @return the ordinal
+     */
+    int ordinal() {
+        return ordinal;
+    }
+
     <T> Object get(T entity) {
-        try {
-            return this.field.get(entity);
-        } catch (IllegalAccessException e) {
-            throw new MappingException("It cannot access the value from the field " + field + " at the entity "
-                    + entity.getClass());
+        return this.accessor.get(entity);
+    }
+
+    /**
+     * Returns the value of an {@code int} or {@code long} field without boxing
+     *
+     * @param entity the entity
+     * @return the value
+     */
+    long getLong(Object entity) {
+        if (int.class.equals(this.field.getType())) {
+            return this.accessor.getInt(entity);
+        }
+        return this.accessor.getLong(entity);
+    }
+
+    /**
+     * Compares the values of the field at both entities, the {@code int}, {@code long} and {@code boolean} fields
+     * are compared without boxing
+     *
+     * @param first  the first entity
+     * @param second the second entity
+     * @return the comparison of the values
+     */
+    int compare(Object first, Object second) {
+        Class<?> type = this.field.getType();
+        if (int.class.equals(type)) {
+            return Integer.compare(this.accessor.getInt(first), this.accessor.getInt(second));
+        } else if (long.class.equals(type)) {
+            return Long.compare(this.accessor.getLong(first), this.accessor.getLong(second));
+        } else if (boolean.class.equals(type)) {
+            return Boolean.compare(this.accessor.getBoolean(first), this.accessor.getBoolean(second));
         }
+        Comparable<Object> value = (Comparable<Object>) get(first);
+        return value.compareTo(get(second));
     }
 
     <T, U extends Comparable> Comparator comparator() {
-        Function<T, U> comp = t -> (U) get(t);
-        return Comparator.comparing(comp);
+        return new FieldComparator(this, true);
     }
 
     <T, U extends Comparable> Comparator reversed() {
-        return comparator().reversed();
+        return new FieldComparator(this, false);
     }
 
     @Override
@@ -80,11 +128,12 @@ final class FieldMetadata {
         return "FieldMetadata{" +
                 "field=" + field +
                 ", name='" + name + '\'' +
+                ", ordinal=" + ordinal +
                 '}';
     }
 
-    static FieldMetadata of(Field field) {
-        return new FieldMetadata(field, field.getName());
+    static FieldMetadata of(Field field, int ordinal) {
+        return new FieldMetadata(field, field.getName(), FieldAccessor.of(field), ordinal);
     }
 
 
@@ -0,0 +1,187 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import one.microstream.persistence.types.Persister;
+import one.microstream.persistence.types.Storer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@link Committer} that groups the concurrent writes in a single {@link Storer} commit.
+ * The writers enqueue their instances and a committer thread takes everything that arrived within the window,
+ * or up to the batch size, to a single commit. Each writer waits until the commit of its batch is done.
+ * <p>
+ * A writer submits its instances with the guard, the lock it holds while it changes them, and waits for the commit
+ * after it releases the lock, so the other writers enqueue to the same commit meanwhile. The committer thread reads
+ * the instances of each commit under its guard, so it never reads an instance under change, and the commit stores
+ * the snapshot of the instances at that moment, with every change made before it.
+ * <p>
+ * The enqueue of a writer and the shutdown are mutually exclusive, under the state lock, so once the committer
+ * stops, either by {@link #close()} or because its thread is interrupted, no commit is enqueued after its last drain,
+ * and every enqueued commit is either done or failed.
+ */
+final class GroupCommitter implements Committer {
+
+    private static final Logger LOGGER = Logger.getLogger(GroupCommitter.class.getName());
+
+    private final Persister persister;
+
+    private final long window;
+
+    private final int batch;
+
+    private final BlockingQueue<Commit> queue;
+
+    private final Thread thread;
+
+    private final Lock state;
+
+    private volatile boolean running;
+
+    GroupCommitter(Persister persister, long window, int batch) {
+        this.persister = persister;
+        this.window = window;
+        this.batch = batch;
+        this.queue = new LinkedBlockingQueue<>();
+        this.state = new ReentrantLock();
+        this.running = true;
+        this.thread = new Thread(this::run, "microstream-group-commit");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Enqueues the instances to the next group commit
+     *
+     * @throws IllegalStateException when the committer is closed
+     */
+    @Override
+    public CompletableFuture<Void> submit(Collection<?> instances, Lock guard) {
+        Objects.requireNonNull(guard, "guard is required");
+        return enqueue(new Commit(List.copyOf(instances), guard, new CompletableFuture<>()));
+    }
+
+    private CompletableFuture<Void> enqueue(Commit commit) {
+        this.state.lock();
+        try {
+            if (!running || !this.thread.isAlive()) {
+                throw new IllegalStateException("The group committer is closed");
+            }
+            this.queue.add(commit);
+        } finally {
+            this.state.unlock();
+        }
+        return commit.future();
+    }
+
+    /**
+     * Stops the committer thread after it commits the pending writes
+     */
+    @Override
+    public void close() {
+        stop();
+        try {
+            this.thread.join();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+        fail();
+    }
+
+    private void stop() {
+        this.state.lock();
+        try {
+            this.running = false;
+        } finally {
+            this.state.unlock();
+        }
+    }
+
+    private void fail() {
+        List<Commit> pending = new ArrayList<>();
+        this.queue.drainTo(pending);
+        pending.forEach(c -> c.future().completeExceptionally(new IllegalStateException("The group committer is closed")));
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Commit first = this.queue.poll(window, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    commit(collect(first));
+                }
+            } catch (InterruptedException exp) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        stop();
+        fail();
+    }
+
+    private List<Commit> collect(Commit first) throws InterruptedException {
+        List<Commit> commits = new ArrayList<>();
+        commits.add(first);
+        int size = first.instances().size();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(window);
+        while (size < batch) {
+            long remaining = deadline - System.nanoTime();
+            Commit next = remaining > 0 ? this.queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                break;
+            }
+            commits.add(next);
+            size += next.instances().size();
+        }
+        return commits;
+    }
+
+    private void commit(List<Commit> commits) {
+        try {
+            Storer storer = this.persister.createStorer();
+            commits.forEach(c -> c.store(storer));
+            storer.commit();
+            commits.forEach(c -> c.future().complete(null));
+        } catch (RuntimeException exp) {
+            LOGGER.log(Level.WARNING, "The group commit failed", exp);
+            commits.forEach(c -> c.future().completeExceptionally(exp));
+        }
+    }
+
+    private record Commit(List<?> instances, Lock guard, CompletableFuture<Void> future) {
+
+        void store(Storer storer) {
+            guard.lock();
+            try {
+                storer.storeAll(instances);
+            } finally {
+                guard.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link EntityIndex} based on hash, it answers equals conditions.
+ * It keeps the indexed value of every key, so an entity changed in place is moved to its new value on the next put.
+ */
+final class HashIndex implements EntityIndex {
+
+    private final FieldMetadata field;
+
+    private final Map<Object, Set<Object>> values;
+
+    private final Map<Object, Object> keys;
+
+    HashIndex(FieldMetadata field) {
+        this.field = Objects.requireNonNull(field, "field is required");
+        this.values = new ConcurrentHashMap<>();
+        this.keys = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public FieldMetadata field() {
+        return field;
+    }
+
+    @Override
+    public void put(Object key, Object entity) {
+        Object value = this.field.get(entity);
+        Object previous = value == null ? this.keys.remove(key) : this.keys.put(key, value);
+        if (Objects.equals(previous, value)) {
+            return;
+        }
+        if (previous != null) {
+            detach(previous, key);
+        }
+        if (value != null) {
+            this.values.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    @Override
+    public void remove(Object key) {
+        Object previous = this.keys.remove(key);
+        if (previous != null) {
+            detach(previous, key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.keys.clear();
+        this.values.clear();
+    }
+
+    @Override
+    public Set<Object> keys(Object value) {
+        if (value == null) {
+            return Collections.emptySet();
+        }
+        Set<Object> keys = this.values.get(value);
+        return keys == null ? Collections.emptySet() : Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public int size() {
+        return this.keys.size();
+    }
+
+    private void detach(Object value, Object key) {
+        this.values.computeIfPresent(value, (v, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "HashIndex{" +
+                "field=" + field +
+                ", values=" + values.size() +
+                '}';
+    }
+}
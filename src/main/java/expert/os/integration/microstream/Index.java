@@ -0,0 +1,72 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Declares a secondary index on a field annotated with {@link jakarta.nosql.Column}.
+ * The index is kept in memory, it is rebuilt on startup and maintained on every write, and it is used
+ * by the queries with conditions on the field, instead of a scan of every entity of the type.
+ * <p>
+ * The {@link Type#HASH} index, the default, answers equals and in conditions. The {@link Type#SORTED} index
+ * also answers the greater and lesser conditions, and it returns the entities in order, when the query is sorted by
+ * the field, so a query with a limit stops as soon as the page is complete.
+ * <pre>{@code
+ * @Entity
+ * public class Book {
+ *     @Id
+ *     private String isbn;
+ *     @Column
+ *     @Index
+ *     private String title;
+ *     @Column
+ *     @Index(Index.Type.SORTED)
+ *     private Integer edition;
+ * }
+ * }</pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Index {
+
+    /**
+     * The index type
+     *
+     * @return the index type, the default is {@link Type#HASH}
+     */
+    Type value() default Type.HASH;
+
+    /**
+     * The index types
+     */
+    enum Type {
+        /**
+         * An index based on hash, for equals and in conditions
+         */
+        HASH,
+        /**
+         * An index in the order of the field, a {@link Comparable} field, for equals, in, greater and lesser conditions,
+         * and to sort
+         */
+        SORTED
+    }
+}
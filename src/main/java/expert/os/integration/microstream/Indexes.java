@@ -0,0 +1,140 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import jakarta.data.exceptions.MappingException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toUnmodifiableMap;
+
+/**
+ * The secondary indexes of an entity type, by field name.
+ */
+final class Indexes {
+
+    static final Indexes EMPTY = new Indexes(Collections.emptyMap(), new EntityIndex[0], null);
+
+    private final Map<String, EntityIndex> indexes;
+
+    private final EntityIndex[] ordinals;
+
+    private final FieldMetadata id;
+
+    private Indexes(Map<String, EntityIndex> indexes, EntityIndex[] ordinals, FieldMetadata id) {
+        this.indexes = indexes;
+        this.ordinals = ordinals;
+        this.id = id;
+    }
+
+    /**
+     * Checks if the field is the id of the entity, whose values are the keys of the partition
+     *
+     * @param field the field
+     * @return {@code true} when the field is the id
+     */
+    boolean isId(FieldMetadata field) {
+        return this.id != null && this.id.equals(field);
+    }
+
+    /**
+     * Returns the index of the field, found by the ordinal of the field
+     *
+     * @param field the field
+     * @return the index or {@link Optional#empty()}
+     */
+    Optional<EntityIndex> find(FieldMetadata field) {
+        int ordinal = field.ordinal();
+        if (ordinal < 0 || ordinal >= this.ordinals.length) {
+            return Optional.empty();
+        }
+        EntityIndex index = this.ordinals[ordinal];
+        return index != null && index.field().equals(field) ? Optional.of(index) : Optional.empty();
+    }
+
+    /**
+     * Checks if there is no secondary index
+     *
+     * @return {@code true} when there is no secondary index
+     */
+    boolean isEmpty() {
+        return this.indexes.isEmpty();
+    }
+
+    /**
+     * Returns the indexes
+     *
+     * @return the indexes
+     */
+    Collection<EntityIndex> values() {
+        return Collections.unmodifiableCollection(this.indexes.values());
+    }
+
+    void put(Object key, Object entity) {
+        this.indexes.values().forEach(index -> index.put(key, entity));
+    }
+
+    void remove(Object key) {
+        this.indexes.values().forEach(index -> index.remove(key));
+    }
+
+    void clear() {
+        this.indexes.values().forEach(EntityIndex::clear);
+    }
+
+    @Override
+    public String toString() {
+        return "Indexes{" +
+                "indexes=" + indexes.values() +
+                '}';
+    }
+
+    /**
+     * Creates the indexes of the fields annotated with {@link Index}
+     *
+     * @param metadata the entity metadata
+     * @return the {@link Indexes} of the entity
+     * @throws NullPointerException when metadata is null
+     */
+    static Indexes of(EntityMetadata metadata) {
+        Objects.requireNonNull(metadata, "metadata is required");
+        Map<String, EntityIndex> indexes = metadata.fields().stream()
+                .filter(f -> f.field().getAnnotation(Index.class) != null)
+                .collect(toUnmodifiableMap(FieldMetadata::name, Indexes::index));
+        if (indexes.isEmpty()) {
+            return new Indexes(indexes, new EntityIndex[0], metadata.id());
+        }
+        EntityIndex[] ordinals = new EntityIndex[metadata.fields().size() + 1];
+        indexes.values().forEach(index -> ordinals[index.field().ordinal()] = index);
+        return new Indexes(indexes, ordinals, metadata.id());
+    }
+
+    private static EntityIndex index(FieldMetadata field) {
+        Index index = field.field().getAnnotation(Index.class);
+        if (Index.Type.SORTED.equals(index.value())) {
+            Class<?> type = field.field().getType();
+            if (!type.isPrimitive() && !Comparable.class.isAssignableFrom(type)) {
+                throw new MappingException("The sorted index requires a Comparable field, the field: " + field.field());
+            }
+            return new SortedIndex(field);
+        }
+        return new HashIndex(field);
+    }
+}
@@ -113,15 +113,14 @@ class MapperDelete extends AbstractMapperQuery implements QueryMapper.MapperDele
     }
 
     private <T> void delete() {
-        this.template.remove(filter());
+        this.template.remove(this.mapping.type(), filter());
     }
 
     private <T> Predicate<T> filter() {
-        Predicate<T> isInstance = this.mapping.isInstance();
         if (condition != null) {
-            return isInstance.and((Predicate<T>) condition);
+            return (Predicate<T>) condition;
         } else {
-            return isInstance;
+            return (Predicate<T>) Condition.all();
         }
     }
 }
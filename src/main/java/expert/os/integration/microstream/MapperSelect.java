@@ -147,32 +147,40 @@ class MapperSelect extends AbstractMapperQuery implements QueryMapper.MapperFrom
 
     @Override
     public <T> Stream<T> stream() {
-        return this.template.entities(filter(), sorts, start, limit);
+        return this.template.entities(this.mapping.type(), filter(), sorts, start, limit);
     }
 
     @Override
     public <T> List<T> result() {
-        return (List<T>) stream().toList();
+        return this.template.result(this.mapping.type(), filter(), sorts, start, limit);
     }
 
     @Override
     public <T> Optional<T> singleResult() {
-        List<T> entities = result();
+        List<T> entities = this.template.result(this.mapping.type(), filter(), sorts, start,
+                limit > 0 ? Math.min(limit, 2) : 2);
         if (entities.isEmpty()) {
             return Optional.empty();
         }
         if (entities.size() > 1) {
-            throw new NonUniqueResultException("The single result can return zero or one, but it is returning " + entities.size());
+            throw new NonUniqueResultException("The single result can return zero or one, but it is returning more than one");
         }
         return Optional.of(entities.get(0));
     }
 
+    QueryPlan explain() {
+        return this.template.explain(this.mapping.type(), filter(), sorts, start, limit);
+    }
+
+    QueryExplain analyze() {
+        return this.template.analyze(this.mapping.type(), filter(), sorts, start, limit);
+    }
+
     private <T> Predicate<?> filter() {
-        Predicate<T> isInstance = this.mapping.isInstance();
         if (condition != null) {
-            return isInstance.and((Predicate<? super T>) condition);
+            return (Predicate<T>) condition;
         } else {
-            return isInstance;
+            return Condition.all();
         }
     }
 }
@@ -0,0 +1,126 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import jakarta.data.exceptions.MappingException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Optional;
+
+/**
+ * The {@link FieldAccessor} that reads the field with a {@link MethodHandle}, where the primitive fields
+ * have a handle typed to the primitive, so they are read without boxing.
+ */
+final class MethodHandleAccessor implements FieldAccessor {
+
+    private final Field field;
+
+    private final MethodHandle getter;
+
+    private final MethodHandle primitive;
+
+    private MethodHandleAccessor(Field field, MethodHandle getter, MethodHandle primitive) {
+        this.field = field;
+        this.getter = getter;
+        this.primitive = primitive;
+    }
+
+    @Override
+    public Object get(Object entity) {
+        try {
+            return getter.invokeExact(entity);
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Throwable exception) {
+            throw error(entity, exception);
+        }
+    }
+
+    @Override
+    public int getInt(Object entity) {
+        if (!int.class.equals(field.getType())) {
+            return FieldAccessor.super.getInt(entity);
+        }
+        try {
+            return (int) primitive.invokeExact(entity);
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Throwable exception) {
+            throw error(entity, exception);
+        }
+    }
+
+    @Override
+    public long getLong(Object entity) {
+        if (!long.class.equals(field.getType())) {
+            return FieldAccessor.super.getLong(entity);
+        }
+        try {
+            return (long) primitive.invokeExact(entity);
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Throwable exception) {
+            throw error(entity, exception);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(Object entity) {
+        if (!boolean.class.equals(field.getType())) {
+            return FieldAccessor.super.getBoolean(entity);
+        }
+        try {
+            return (boolean) primitive.invokeExact(entity);
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Throwable exception) {
+            throw error(entity, exception);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MethodHandleAccessor{" +
+                "field=" + field +
+                '}';
+    }
+
+    private MappingException error(Object entity, Throwable exception) {
+        return new MappingException("It cannot access the value from the field " + field + " at the entity "
+                + entity.getClass(), exception);
+    }
+
+    /**
+     * Unreflects the getter of the field
+     *
+     * @param field the field, already accessible
+     * @return the {@link MethodHandleAccessor} or {@link Optional#empty()} when the field cannot be unreflected
+     */
+    static Optional<FieldAccessor> of(Field field) {
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflectGetter(field);
+            MethodHandle getter = handle.asType(MethodType.methodType(Object.class, Object.class));
+            Class<?> type = field.getType();
+            MethodHandle primitive = type.isPrimitive() ? handle.asType(MethodType.methodType(type, Object.class)) : null;
+            return Optional.of(new MethodHandleAccessor(field, getter, primitive));
+        } catch (IllegalAccessException exception) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import jakarta.data.exceptions.MappingException;
+import jakarta.data.repository.Pageable;
+import jakarta.data.repository.Sort;
+import org.eclipse.jnosql.communication.query.DeleteQuery;
+import org.eclipse.jnosql.communication.query.SelectQuery;
+import org.eclipse.jnosql.communication.query.method.DeleteMethodProvider;
+import org.eclipse.jnosql.communication.query.method.SelectMethodProvider;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The plan of a repository method, built once per {@link Method}: the {@link RepositoryType}, the {@link ReturnType},
+ * the compiled condition, the comparators of the static order and the page. The method name is parsed only here,
+ * so an invocation only binds its parameters.
+ */
+final class MethodQuery {
+
+    private static final Function<Object[], Condition> ALL = params -> Condition.all();
+
+    private final RepositoryType type;
+
+    private final ReturnType returnType;
+
+    private final Function<Object[], Condition> condition;
+
+    private final List<Comparator<?>> comparators;
+
+    private final EntityMetadata metadata;
+
+    private final long skip;
+
+    private final long limit;
+
+    private MethodQuery(RepositoryType type, ReturnType returnType, Function<Object[], Condition> condition,
+                        List<Comparator<?>> comparators, EntityMetadata metadata, long skip, long limit) {
+        this.type = type;
+        this.returnType = returnType;
+        this.condition = condition;
+        this.comparators = comparators;
+        this.metadata = metadata;
+        this.skip = skip;
+        this.limit = limit;
+    }
+
+    RepositoryType type() {
+        return type;
+    }
+
+    /**
+     * Binds the parameters to the condition of the method
+     *
+     * @param params the method parameters
+     * @return the {@link Condition}
+     */
+    Condition condition(Object[] params) {
+        return condition.apply(params);
+    }
+
+    /**
+     * Returns the comparators of the static order of the method, followed by the {@link Sort} and
+     * {@link Pageable} parameters
+     *
+     * @param params the method parameters
+     * @return the comparators
+     * @throws MappingException when there is no field with the name of a sort
+     */
+    List<Comparator<?>> comparators(Object[] params) {
+        List<Sort> sorts = ReturnType.sort(Collections.emptyList(), params);
+        if (sorts.isEmpty()) {
+            return comparators;
+        }
+        List<Comparator<?>> comparators = new ArrayList<>(this.comparators);
+        comparators.addAll(comparators(sorts, metadata));
+        return comparators;
+    }
+
+    long skip(Pageable pageable) {
+        return pageable == null ? skip : MicrostreamPage.skip(pageable);
+    }
+
+    /**
+     * Returns the maximum number of entities, a method that returns a single entity, or an {@link java.util.Optional},
+     * takes the first match only, so its query stops there
+     *
+     * @param pageable the pageable parameter or null
+     * @return the limit, zero is unlimited
+     */
+    long limit(Pageable pageable) {
+        if (ReturnType.OPTIONAL.equals(returnType) || ReturnType.DEFAULT.equals(returnType)) {
+            return 1L;
+        }
+        return pageable == null ? limit : pageable.size();
+    }
+
+    /**
+     * Converts the result to the return type of the method
+     *
+     * @param entities the result
+     * @param pageable the page or null
+     * @param <T>      the entity type
+     * @return the converted result
+     */
+    <T> Object convert(List<T> entities, Pageable pageable) {
+        return returnType.convert(entities, pageable);
+    }
+
+    /**
+     * Converts the page, with the number of matches, to the return type of the method
+     *
+     * @param result   the page and the number of matches
+     * @param pageable the page or null
+     * @param <T>      the entity type
+     * @return the converted result
+     */
+    <T> Object convert(PageResult<T> result, Pageable pageable) {
+        return returnType.convert(result, pageable);
+    }
+
+    /**
+     * Checks if the method returns a {@link jakarta.data.repository.Page}, that requires the number of matches
+     *
+     * @return {@code true} when the return type is a page
+     */
+    boolean isPage() {
+        return ReturnType.PAGE.equals(returnType);
+    }
+
+    /**
+     * Creates the plan of the repository method
+     *
+     * @param method   the repository method
+     * @param metadata the entity metadata
+     * @return the {@link MethodQuery}
+     * @throws NullPointerException when there is a null parameter
+     * @throws MappingException     when the method refers to a field that does not exist
+     */
+    static MethodQuery of(Method method, EntityMetadata metadata) {
+        Objects.requireNonNull(method, "method is required");
+        Objects.requireNonNull(metadata, "metadata is required");
+        RepositoryType type = RepositoryType.of(method);
+        switch (type) {
+            case FIND_BY, COUNT_BY, EXISTS_BY -> {
+                SelectQuery query = SelectMethodProvider.INSTANCE.apply(method, "");
+                Function<Object[], Condition> condition = query.where()
+                        .map(where -> Predicates.of(where.condition(), metadata, method)).orElse(ALL);
+                ReturnType returnType = RepositoryType.FIND_BY.equals(type) ? ReturnType.of(method.getReturnType()) : null;
+                return new MethodQuery(type, returnType, condition, comparators(query.orderBy(), metadata), metadata,
+                        query.skip(), query.limit());
+            }
+            case DELETE_BY -> {
+                DeleteQuery query = DeleteMethodProvider.INSTANCE.apply(method, "");
+                Function<Object[], Condition> condition = query.where()
+                        .map(where -> Predicates.of(where.condition(), metadata, method)).orElse(ALL);
+                return new MethodQuery(type, null, condition, Collections.emptyList(), metadata, 0, 0);
+            }
+            default -> {
+                return new MethodQuery(type, null, ALL, Collections.emptyList(), metadata, 0, 0);
+            }
+        }
+    }
+
+    private static List<Comparator<?>> comparators(List<Sort> sorts, EntityMetadata metadata) {
+        List<Comparator<?>> comparators = new ArrayList<>();
+        for (Sort sort : sorts) {
+            FieldMetadata field = metadata.field(sort.property())
+                    .orElseThrow(() -> new MappingException("There is not field with the name " + sort.property() +
+                            " to order"));
+            comparators.add(sort.isAscending() ? field.comparator() : field.reversed());
+        }
+        return Collections.unmodifiableList(comparators);
+    }
+}
@@ -25,7 +25,9 @@ import java.util.List;
 import java.util.Objects;
 
 /**
- * A Microstream implementation of {@link  Page}
+ * A Microstream implementation of {@link  Page}. The total of elements is the number of matches of the query,
+ * counted on the same pass that reads the page, see {@link DataStorage#page(Class, java.util.function.Predicate,
+ * List, long, long)}.
  *
  * @param <T> the entity type
  */
@@ -35,19 +37,25 @@ class MicrostreamPage<T> implements Page<T> {
 
     private final Pageable pageable;
 
-    private MicrostreamPage(List<T> entities, Pageable pageable) {
+    private final long total;
+
+    private MicrostreamPage(List<T> entities, Pageable pageable, long total) {
         this.entities = entities;
         this.pageable = pageable;
+        this.total = total;
     }
 
     @Override
     public long totalElements() {
-        throw new UnsupportedOperationException("JNoSQL has no support for this feature yet");
+        checkTotal();
+        return this.total;
     }
 
     @Override
     public long totalPages() {
-        throw new UnsupportedOperationException("JNoSQL has no support for this feature yet");
+        checkTotal();
+        long size = this.pageable.size();
+        return size == 0 ? 0 : (this.total + size - 1) / size;
     }
 
     @Override
@@ -89,12 +97,12 @@ class MicrostreamPage<T> implements Page<T> {
             return false;
         }
         MicrostreamPage<?> page = (MicrostreamPage<?>) o;
-        return Objects.equals(entities, page.entities) && Objects.equals(pageable, page.pageable);
+        return total == page.total && Objects.equals(entities, page.entities) && Objects.equals(pageable, page.pageable);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(entities, pageable);
+        return Objects.hash(entities, pageable, total);
     }
 
     @Override
@@ -102,9 +110,16 @@ class MicrostreamPage<T> implements Page<T> {
         return "NoSQLPage{" +
                 "entities=" + entities +
                 ", pageable=" + pageable +
+                ", total=" + total +
                 '}';
     }
 
+    private void checkTotal() {
+        if (this.total < 0) {
+            throw new UnsupportedOperationException("The page was created without the total of elements");
+        }
+    }
+
     /**
      * Creates a {@link  Page} implementation from entities and a pageable
      * @param entities the entities
@@ -115,7 +130,25 @@ class MicrostreamPage<T> implements Page<T> {
     static <T> Page<T> of(List<T> entities, Pageable pageable) {
         Objects.requireNonNull(entities, "entities is required");
         Objects.requireNonNull(pageable, "pageable is required");
-        return new MicrostreamPage<>(entities, pageable);
+        return new MicrostreamPage<>(entities, pageable, -1L);
+    }
+
+    /**
+     * Creates a {@link  Page} implementation from entities, a pageable and the number of matches of the query
+     * @param entities the entities
+     * @param pageable the pageable
+     * @param total    the number of matches of the query across every page
+     * @return a {@link Page} instance
+     * @param <T> the entity type
+     * @throws IllegalArgumentException when the total is negative
+     */
+    static <T> Page<T> of(List<T> entities, Pageable pageable, long total) {
+        Objects.requireNonNull(entities, "entities is required");
+        Objects.requireNonNull(pageable, "pageable is required");
+        if (total < 0) {
+            throw new IllegalArgumentException("The total must not be negative, the value: " + total);
+        }
+        return new MicrostreamPage<>(entities, pageable, total);
     }
 
     /**
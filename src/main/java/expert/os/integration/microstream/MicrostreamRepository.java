@@ -21,6 +21,7 @@ import jakarta.data.repository.Pageable;
 import jakarta.data.repository.PageableRepository;
 import jakarta.data.repository.Sort;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
@@ -45,22 +46,10 @@ class MicrostreamRepository<T, K> implements PageableRepository<T, K> {
         Objects.requireNonNull(pageable, "pageable is required");
         EntityMetadata metadata = this.template.metadata(type);
 
-        Comparator<T> comparator = comparator(pageable, metadata);
-        Stream<T> entities = this.template.entities();
-
-        if (Objects.nonNull(comparator)) {
-            entities = entities.sorted(comparator);
-        }
-
-        long skip = MicrostreamPage.skip(pageable);
-        if (skip > 1) {
-            entities = entities.skip(skip);
-        }
-        if (pageable.size() >= 1) {
-            entities = entities.limit(pageable.size());
-        }
-        List<T> collect = entities.collect(Collectors.toUnmodifiableList());
-        return MicrostreamPage.of(collect, pageable);
+        List<Comparator<?>> sorts = comparator(pageable, metadata);
+        PageResult<T> result = this.template.page(type, Condition.all(), sorts, MicrostreamPage.skip(pageable),
+                pageable.size());
+        return MicrostreamPage.of(result.entities(), pageable, result.total());
     }
 
     @Override
@@ -91,7 +80,7 @@ class MicrostreamRepository<T, K> implements PageableRepository<T, K> {
 
     @Override
     public Stream<T> findAll() {
-        return this.template.entities();
+        return this.template.entities(type);
     }
 
     @Override
@@ -106,7 +95,7 @@ class MicrostreamRepository<T, K> implements PageableRepository<T, K> {
 
     @Override
     public long count() {
-        return this.template.size();
+        return this.template.size(type);
     }
 
     @Override
@@ -132,7 +121,7 @@ class MicrostreamRepository<T, K> implements PageableRepository<T, K> {
     @Override
     public void deleteAllById(Iterable<K> ids) {
         Objects.requireNonNull(ids, "ids is required");
-        this.template.delete(ids);
+        this.template.delete(type, ids);
     }
 
     @Override
@@ -142,31 +131,27 @@ class MicrostreamRepository<T, K> implements PageableRepository<T, K> {
         FieldMetadata id = metadata.id();
         Set<Object> keys = StreamSupport.stream(entities.spliterator(), false)
                 .map(id::get).collect(Collectors.toUnmodifiableSet());
-        this.template.delete(keys);
+        this.template.delete(metadata.type(), keys);
     }
 
     @Override
     public void deleteAll() {
-        this.template.deleteAll();
+        this.template.deleteAll(type);
     }
 
     private Class<?> type() {
         return this.type;
     }
 
-    private Comparator<T> comparator(Pageable pageable, EntityMetadata metadata) {
-        Comparator<T> comparator = null;
+    private List<Comparator<?>> comparator(Pageable pageable, EntityMetadata metadata) {
+        List<Comparator<?>> comparators = new ArrayList<>();
         for (Sort sort : pageable.sorts()) {
             Optional<FieldMetadata> field = metadata.field(sort.property());
-            Comparator<T> newComparator = field.map(f -> sort.isAscending() ? f.comparator() : f.reversed())
+            Comparator<T> comparator = field.map(f -> sort.isAscending() ? f.comparator() : f.reversed())
                     .orElseThrow(() -> new MappingException("There is not field with the name " + sort.property() +
                             " to order"));
-            if (comparator == null) {
-                comparator = newComparator;
-            } else {
-                comparator = comparator.thenComparing(newComparator);
-            }
+            comparators.add(comparator);
         }
-        return comparator;
+        return comparators;
     }
 }
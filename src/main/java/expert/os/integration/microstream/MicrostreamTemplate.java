@@ -17,6 +17,7 @@ package expert.os.integration.microstream;
 
 
 import jakarta.data.exceptions.MappingException;
+import jakarta.data.repository.Pageable;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Default;
 import jakarta.enterprise.inject.Typed;
@@ -24,8 +25,11 @@ import jakarta.inject.Inject;
 import jakarta.nosql.QueryMapper;
 import jakarta.nosql.Template;
 
+import java.lang.reflect.Method;
 import java.time.Duration;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -35,18 +39,18 @@ import java.util.stream.StreamSupport;
 
 /**
  * The Microstream implementation of {@link Template}
- * It uses a {@link one.microstream.collections.lazy.LazyHashMap} as root graph at Microstream.
+ * It uses a {@link DataRoot} as root graph at Microstream.
  *
- * <p>This interface uses a {@link java.util.Map} as the data structure root on Microstream, the {@link one.microstream.collections.lazy.LazyHashMap} 
+ * <p>The root keeps one {@link java.util.Map} per entity type, the {@link one.microstream.collections.lazy.LazyHashMap}
  * provided by Microstream.</p>
  * <p>It is crucial to the Id, annotated with a field with {@link jakarta.nosql.Id},
  * implements the {@link Object#equals(Object)} and {@link Object#hashCode()} methods.</p>
- * <p>You can have several entities from different instances; however, the id is unique.</p>
- * <p>So, given the id: "any-id" it will belong to an entity, two entities with the same id will keep the last one updated.</p>
- * 
- * <p>The {@link Template#find(Class, Object)} method will use the {@link Class#isInstance(Object)}
- * is instance to return if the entity is the same instance, avoiding {@link ClassCastException}.</p>
- * The {@link Template#select(Class)} method has the same approach. 
+ * <p>You can have several entities from different types; the id is unique by entity type.</p>
+ * <p>So, given the id: "any-id" it will belong to an entity of a type, two entities of the same type with the same id
+ * will keep the last one updated.</p>
+ *
+ * <p>The {@link Template#find(Class, Object)} method will only look at the entities of the type.</p>
+ * The {@link Template#select(Class)} method has the same approach.
  */
 @ApplicationScoped
 @Typed({Template.class, MicrostreamTemplate.class})
@@ -76,7 +80,11 @@ class MicrostreamTemplate implements Template {
 
     @Override
     public <T> T insert(T entity, Duration ttl) {
-        throw new UnsupportedOperationException("The insert with duration is unsupported");
+        Objects.requireNonNull(entity, "entity is required");
+        Objects.requireNonNull(ttl, "ttl is required");
+        Entry entry = entry(entity);
+        this.data.put(entry.key(), entry.value(), ttl);
+        return entity;
     }
 
     @Override
@@ -86,7 +94,12 @@ class MicrostreamTemplate implements Template {
 
     @Override
     public <T> Iterable<T> insert(Iterable<T> entities, Duration ttl) {
-        throw new UnsupportedOperationException("The insert with duration is unsupported");
+        Objects.requireNonNull(entities, "entities is required");
+        Objects.requireNonNull(ttl, "ttl is required");
+        List<Entry> entries = StreamSupport.stream(entities.spliterator(), false)
+                .map(this::entry).toList();
+        this.data.put(entries, ttl);
+        return entities;
     }
 
     @Override
@@ -103,37 +116,137 @@ class MicrostreamTemplate implements Template {
     public <T, K> Optional<T> find(Class<T> type, K id) {
         Objects.requireNonNull(type, "type is required");
         Objects.requireNonNull(id, "id is required");
-        Optional<T> entity = data.get(id);
-        return entity.filter(type::isInstance);
+        return data.get(type, id);
     }
 
     @Override
     public <T, K> void delete(Class<T> type, K id) {
         Objects.requireNonNull(type, "type is required");
         Objects.requireNonNull(id, "id is required");
-        this.data.remove(id);
+        this.data.remove(type, id);
     }
 
-    <T, K> void delete(Iterable<K> ids) {
+    <T, K> void delete(Class<T> type, Iterable<K> ids) {
+        Objects.requireNonNull(type, "type is required");
         Objects.requireNonNull(ids, "ids is required");
-        this.data.remove(ids);
+        this.data.remove(type, ids);
     }
 
     void deleteAll() {
         this.data.clear();
     }
 
-    <T> Stream<T> entities() {
-        return this.data.values();
+    <T> void deleteAll(Class<T> type) {
+        Objects.requireNonNull(type, "type is required");
+        this.data.clear(type);
     }
 
-    <T> Stream<T> entities(Predicate<?> filter, List<Comparator<?>> sorts,
+    <T> Stream<T> entities(Class<T> type) {
+        return this.data.values(type);
+    }
+
+    <T> Stream<T> entities(Class<?> type, Predicate<?> filter, List<Comparator<?>> sorts,
                            long start, long limit) {
-        return this.data.values((Predicate<Object>) filter, sorts, start, limit);
+        return this.<T>result(type, filter, sorts, start, limit).stream();
+    }
+
+    <T> List<T> result(Class<?> type, Predicate<?> filter, List<Comparator<?>> sorts,
+                       long start, long limit) {
+        return this.data.list(type, (Predicate<Object>) filter, sorts, start, limit);
+    }
+
+    QueryPlan explain(Class<?> type, Predicate<?> filter, List<Comparator<?>> sorts, long start, long limit) {
+        return this.data.explain(type, (Predicate<Object>) filter, sorts, start, limit);
     }
 
-    void remove(Predicate<Object> filter){
-        this.data.remove(filter);
+    QueryExplain analyze(Class<?> type, Predicate<?> filter, List<Comparator<?>> sorts, long start, long limit) {
+        return this.data.analyze(type, (Predicate<Object>) filter, sorts, start, limit);
+    }
+
+    /**
+     * Returns the plan of the query of {@link #select(Class)}, without reading the entities
+     *
+     * @param query the query of {@link #select(Class)} at any step
+     * @return the {@link QueryPlan}
+     * @throws NullPointerException     when query is null
+     * @throws IllegalArgumentException when the query does not come from this template
+     */
+    QueryPlan explain(QueryMapper.MapperQueryBuild query) {
+        return select(query).explain();
+    }
+
+    /**
+     * Runs the query of {@link #select(Class)}, without the result cache, and returns its plan with the entities read
+     *
+     * @param query the query of {@link #select(Class)} at any step
+     * @return the {@link QueryExplain}
+     * @throws NullPointerException     when query is null
+     * @throws IllegalArgumentException when the query does not come from this template
+     */
+    QueryExplain analyze(QueryMapper.MapperQueryBuild query) {
+        return select(query).analyze();
+    }
+
+    /**
+     * Returns the plan of the query of the repository method, with its parameters, without reading the entities
+     *
+     * @param type   the entity type of the repository
+     * @param method the repository method
+     * @param params the parameters of the method
+     * @param <T>    the entity type
+     * @return the {@link QueryPlan}
+     * @throws NullPointerException     when type or method is null
+     * @throws IllegalArgumentException when the method is not a query method
+     */
+    <T> QueryPlan explain(Class<T> type, Method method, Object... params) {
+        MethodQuery query = query(type, method);
+        Pageable pageable = ReturnType.pageable(params);
+        return this.data.explain(type, query.condition(params), query.comparators(params),
+                query.skip(pageable), query.limit(pageable));
+    }
+
+    /**
+     * Runs the query of the repository method, with its parameters, without the result cache, and returns its plan
+     * with the entities read. A {@code deleteBy} method reads the entities it would remove, without removing them.
+     *
+     * @param type   the entity type of the repository
+     * @param method the repository method
+     * @param params the parameters of the method
+     * @param <T>    the entity type
+     * @return the {@link QueryExplain}
+     * @throws NullPointerException     when type or method is null
+     * @throws IllegalArgumentException when the method is not a query method
+     */
+    <T> QueryExplain analyze(Class<T> type, Method method, Object... params) {
+        MethodQuery query = query(type, method);
+        Pageable pageable = ReturnType.pageable(params);
+        return this.data.analyze(type, query.condition(params), query.comparators(params),
+                query.skip(pageable), query.limit(pageable));
+    }
+
+    /**
+     * Returns the statistics of the cache of the query results
+     *
+     * @return the {@link CacheStats}
+     */
+    CacheStats cache() {
+        return this.data.cache().stats();
+    }
+
+    /**
+     * Checks if an entity of the type matches the filter, the scan stops at the first match
+     *
+     * @param type   the entity type
+     * @param filter the filter
+     * @param <T>    the entity type
+     * @return {@code true} when there is a match
+     */
+    <T> boolean exists(Class<T> type, Predicate<?> filter) {
+        return !this.data.list(type, (Predicate<Object>) filter, Collections.emptyList(), 0, 1).isEmpty();
+    }
+
+    long remove(Class<?> type, Predicate<Object> filter){
+        return this.data.remove(type, filter);
     }
     boolean isEmpty() {
         return this.data.isEmpty();
@@ -143,6 +256,30 @@ class MicrostreamTemplate implements Template {
         return this.data.size();
     }
 
+    <T> long size(Class<T> type) {
+        return this.data.size(type);
+    }
+
+    /**
+     * Returns the page of the query with the number of matches of the query, see
+     * {@link DataStorage#page(Class, Predicate, List, long, long)}
+     *
+     * @param type   the entity type
+     * @param filter the filter
+     * @param sorts  the sorts
+     * @param skip   the number of entities to skip
+     * @param limit  the maximum number of entities, zero is unlimited
+     * @param <T>    the entity type
+     * @return the {@link PageResult}
+     */
+    <T> PageResult<T> page(Class<T> type, Predicate<?> filter, List<Comparator<?>> sorts, long skip, long limit) {
+        return this.data.page(type, (Predicate<Object>) filter, sorts, skip, limit);
+    }
+
+    <T> long count(Class<T> type, Predicate<?> filter) {
+        return this.data.count(type, (Predicate<Object>) filter);
+    }
+
     @Override
     public <T> QueryMapper.MapperFrom select(Class<T> type) {
         Objects.requireNonNull(type, "type is required");
@@ -186,5 +323,24 @@ class MicrostreamTemplate implements Template {
         return metadata.entry(entity);
     }
 
+    private MapperSelect select(QueryMapper.MapperQueryBuild query) {
+        Objects.requireNonNull(query, "query is required");
+        if (query instanceof MapperSelect select) {
+            return select;
+        }
+        throw new IllegalArgumentException("The query does not come from the select of the Microstream template: " + query);
+    }
+
+    private <T> MethodQuery query(Class<T> type, Method method) {
+        Objects.requireNonNull(type, "type is required");
+        Objects.requireNonNull(method, "method is required");
+        MethodQuery query = MethodQuery.of(method, metadata(type));
+        if (!EnumSet.of(RepositoryType.FIND_BY, RepositoryType.COUNT_BY, RepositoryType.EXISTS_BY,
+                RepositoryType.DELETE_BY).contains(query.type())) {
+            throw new IllegalArgumentException("The method is not a query method: " + method);
+        }
+        return query;
+    }
+
 
 }
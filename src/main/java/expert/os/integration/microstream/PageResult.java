@@ -0,0 +1,34 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A page of a query with the number of entities that match the query across every page,
+ * see {@link DataStorage#page(Class, java.util.function.Predicate, List, long, long)}.
+ *
+ * @param entities the entities of the page
+ * @param total    the number of matches of the query
+ * @param <T>      the entity type
+ */
+record PageResult<T>(List<T> entities, long total) {
+
+    PageResult {
+        Objects.requireNonNull(entities, "entities is required");
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import one.microstream.collections.lazy.LazyHashMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The entities of a single entity type. The keys are hashed into stripes, each one its own {@link LazyHashMap},
+ * so writes on different stripes neither share a lock nor store the same map.
+ * <p>
+ * Each stripe has a second {@link LazyHashMap} with the expiration of its keys that have a time to live,
+ * the epoch millisecond when the entity expires, so it is guarded and stored along with the stripe.
+ */
+final class Partition {
+
+    private final List<Map<Object, Object>> stripes;
+
+    private List<Map<Object, Long>> expirations;
+
+    Partition(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("The partition requires at least one stripe, the value: " + stripes);
+        }
+        this.stripes = new ArrayList<>(stripes);
+        for (int index = 0; index < stripes; index++) {
+            this.stripes.add(new LazyHashMap<>());
+        }
+        this.expirations = newExpirations(stripes);
+    }
+
+    /**
+     * Returns the stripe index of the key
+     *
+     * @param key the key
+     * @return the stripe index
+     */
+    int index(Object key) {
+        Objects.requireNonNull(key, "key is required");
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), this.stripes.size());
+    }
+
+    /**
+     * Returns the stripe at the index
+     *
+     * @param index the stripe index
+     * @return the stripe
+     */
+    Map<Object, Object> stripe(int index) {
+        return this.stripes.get(index);
+    }
+
+    /**
+     * Returns the stripe of the key
+     *
+     * @param key the key
+     * @return the stripe
+     */
+    Map<Object, Object> stripeOf(Object key) {
+        return this.stripes.get(index(key));
+    }
+
+    /**
+     * Returns the stripes of this partition
+     *
+     * @return the stripes
+     */
+    List<Map<Object, Object>> stripes() {
+        return Collections.unmodifiableList(this.stripes);
+    }
+
+    /**
+     * Returns the expirations of the stripe at the index, where the key is the entity key and the value
+     * the epoch millisecond when it expires
+     *
+     * @param index the stripe index
+     * @return the expirations of the stripe
+     */
+    Map<Object, Long> expirations(int index) {
+        return this.expirations.get(index);
+    }
+
+    /**
+     * Sets the expiration of the key at the stripe
+     *
+     * @param index    the stripe index
+     * @param key      the key
+     * @param deadline the epoch millisecond when the entity expires
+     */
+    void expire(int index, Object key, long deadline) {
+        this.expirations.get(index).put(key, deadline);
+    }
+
+    /**
+     * Removes the expiration of the key at the stripe if there is one
+     *
+     * @param index the stripe index
+     * @param key   the key
+     * @return {@code true} if the expirations of the stripe changed
+     */
+    boolean unexpire(int index, Object key) {
+        Map<Object, Long> stripe = this.expirations.get(index);
+        return !stripe.isEmpty() && stripe.remove(key) != null;
+    }
+
+    /**
+     * Checks if the key at the stripe is expired at the instant
+     *
+     * @param index the stripe index
+     * @param key   the key
+     * @param now   the epoch millisecond
+     * @return {@code true} if the key has an expiration that is not after the instant
+     */
+    boolean isExpired(int index, Object key, long now) {
+        Map<Object, Long> stripe = this.expirations.get(index);
+        if (stripe.isEmpty()) {
+            return false;
+        }
+        Long deadline = stripe.get(key);
+        return deadline != null && deadline <= now;
+    }
+
+    /**
+     * Creates the expirations of a partition stored before they existed, whose field is loaded as null
+     *
+     * @return {@code true} if the expirations were created
+     */
+    boolean upgrade() {
+        if (this.expirations != null) {
+            return false;
+        }
+        this.expirations = newExpirations(this.stripes.size());
+        return true;
+    }
+
+    /**
+     * Returns the number of entities in all stripes
+     *
+     * @return the number of entities
+     */
+    int size() {
+        return this.stripes.stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Returns a new partition with the same entities hashed to a different number of stripes
+     *
+     * @param stripes the number of stripes
+     * @return the new partition
+     */
+    Partition restripe(int stripes) {
+        Partition partition = new Partition(stripes);
+        this.stripes.forEach(stripe -> stripe.forEach((key, value) -> partition.stripeOf(key).put(key, value)));
+        if (this.expirations != null) {
+            this.expirations.forEach(stripe -> stripe.forEach((key, deadline) ->
+                    partition.expire(partition.index(key), key, deadline)));
+        }
+        return partition;
+    }
+
+    private static List<Map<Object, Long>> newExpirations(int stripes) {
+        List<Map<Object, Long>> expirations = new ArrayList<>(stripes);
+        for (int index = 0; index < stripes; index++) {
+            expirations.add(new LazyHashMap<>());
+        }
+        return expirations;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Partition partition = (Partition) o;
+        return Objects.equals(stripes, partition.stripes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(stripes);
+    }
+
+    @Override
+    public String toString() {
+        return "Partition{" +
+                "stripes=" + stripes +
+                '}';
+    }
+}
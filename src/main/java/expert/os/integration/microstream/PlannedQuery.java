@@ -0,0 +1,36 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+
+package expert.os.integration.microstream;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A {@link QueryPlan} with the keys of its candidates, that {@link DataStorage} reads once it planned the query.
+ * The keys are the live ones of the id or of an index, so they never leave the storage.
+ *
+ * @param plan the plan
+ * @param keys the keys of the candidates, {@link Optional#empty()} on a scan
+ */
+record PlannedQuery(QueryPlan plan, Optional<Set<Object>> keys) {
+
+    PlannedQuery {
+        Objects.requireNonNull(plan, "plan is required");
+        Objects.requireNonNull(keys, "keys is required");
+    }
+}
@@ -22,142 +22,112 @@ import org.eclipse.jnosql.communication.query.QueryValue;
 import org.eclipse.jnosql.communication.query.ValueType;
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Predicate;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import static java.util.Objects.requireNonNull;
-import static expert.os.integration.microstream.CompareCondition.of;
 
+/**
+ * Compiles the condition of a query method to a function that binds the method parameters to a {@link Condition}.
+ * The fields are resolved and the parameter positions are assigned once, at the compilation, so each invocation
+ * of the method only reads its parameters.
+ */
 final class Predicates {
     private Predicates() {
     }
-    static <T> Predicate<T> lte(EntityMetadata metadata, Method method, Object[] params,
-                                AtomicInteger paramIndex, QueryCondition condition) {
-
-        QueryValue<?> value = condition.value();
-        FieldMetadata field = metadata.field(condition.name())
-                .orElseThrow(() -> new MappingException("The the entity " + metadata.type() + " " +
-                        "there is no field with the name: " + condition.name()));
-        Object param = param(method, params, value, paramIndex);
-        return of(param.getClass()).lte(param, field);
-    }
-
-    static <T> Predicate<T> lt(EntityMetadata metadata, Method method, Object[] params,
-                                       AtomicInteger paramIndex, QueryCondition condition) {
-
-        QueryValue<?> value = condition.value();
-        FieldMetadata field = metadata.field(condition.name())
-                .orElseThrow(() -> new MappingException("The the entity " + metadata.type() + " " +
-                        "there is no field with the name: " + condition.name()));
-        Object param = param(method, params, value, paramIndex);
-        return of(param.getClass()).lt(param, field);
-    }
-
-    static <T> Predicate<T> gte(EntityMetadata metadata, Method method, Object[] params,
-                                        AtomicInteger paramIndex, QueryCondition condition) {
-
-        QueryValue<?> value = condition.value();
-        FieldMetadata field = metadata.field(condition.name())
-                .orElseThrow(() -> new MappingException("The the entity " + metadata.type() + " " +
-                        "there is no field with the name: " + condition.name()));
-        Object param = param(method, params, value, paramIndex);
-        return of(param.getClass()).gte(param, field);
-    }
-
-    static <T> Predicate<T> gt(EntityMetadata metadata, Method method, Object[] params,
-                                       AtomicInteger paramIndex, QueryCondition condition) {
 
-        QueryValue<?> value = condition.value();
-        FieldMetadata field = metadata.field(condition.name())
-                .orElseThrow(() -> new MappingException("The the entity " + metadata.type() + " " +
-                        "there is no field with the name: " + condition.name()));
-        Object param = param(method, params, value, paramIndex);
-        return of(param.getClass()).gt(param, field);
+    /**
+     * Compiles the query condition of the method
+     *
+     * @param condition the query condition
+     * @param metadata  the entity metadata
+     * @param method    the repository method
+     * @return the function that binds the method parameters to a {@link Condition}
+     * @throws MappingException              when there is no field with the name of the condition
+     * @throws UnsupportedOperationException when the condition is not supported
+     */
+    static Function<Object[], Condition> of(QueryCondition condition, EntityMetadata metadata, Method method) {
+        return condition(condition, metadata, method, new AtomicInteger(0));
     }
 
-    static <T> Predicate<T> eq(EntityMetadata metadata, Method method, Object[] params,
-                               AtomicInteger paramIndex, QueryCondition condition) {
-
-        QueryValue<?> value = condition.value();
-        FieldMetadata field = metadata.field(condition.name())
-                .orElseThrow(() -> new MappingException("The the entity " + metadata.type() + " " +
-                        "there is no field with the name: " + condition.name()));
-        Object param = param(method, params, value, paramIndex);
-        return t -> param.equals(field.get(t));
-    }
-
-    static <T> Predicate<T> in(EntityMetadata metadata, Method method, Object[] params,
-                                       AtomicInteger paramIndex, QueryCondition condition) {
-
-        QueryValue<?> value = condition.value();
-        FieldMetadata field = metadata.field(condition.name())
-                .orElseThrow(() -> new MappingException("The the entity " + metadata.type() + " " +
-                        "there is no field with the name: " + condition.name()));
-        Object param = param(method, params, value, paramIndex);
-        if (param instanceof Iterable<?> iterable) {
-            List<Object> items = new ArrayList<>();
-            iterable.forEach(items::add);
-            return t -> items.contains(field.get(t));
-        }
-        throw new MappingException("The IN condition at method query works with Iterable implementations");
-    }
-
-    static Object param(Method method, Object[] params, QueryValue<?> value, AtomicInteger paramIndex) {
-
-        if (value.type().equals(ValueType.PARAMETER)) {
-            if (paramIndex.get() > params.length - 1) {
-                throw new MappingException("There is arguments missing at the method repository: "
-                        + method);
-            }
-            return requireNonNull(params[paramIndex.getAndIncrement()], "parameter cannot be null at repository");
-        } else {
-            return value.get();
-        }
-    }
-
-    static <T> Predicate<T> condition(QueryCondition condition, EntityMetadata metadata, Method method,
-                                              Object[] params, AtomicInteger paramIndex) {
+    private static Function<Object[], Condition> condition(QueryCondition condition, EntityMetadata metadata,
+                                                           Method method, AtomicInteger paramIndex) {
         switch (condition.condition()) {
             case EQUALS -> {
-                return Predicates.eq(metadata, method, params, paramIndex, condition);
+                return compare(metadata, method, paramIndex, condition, Condition::eq);
             }
             case GREATER_THAN -> {
-                return Predicates.gt(metadata, method, params, paramIndex, condition);
+                return compare(metadata, method, paramIndex, condition, Condition::gt);
             }
             case GREATER_EQUALS_THAN -> {
-                return Predicates.gte(metadata, method, params, paramIndex, condition);
+                return compare(metadata, method, paramIndex, condition, Condition::gte);
             }
             case LESSER_THAN -> {
-                return Predicates.lt(metadata, method, params, paramIndex, condition);
+                return compare(metadata, method, paramIndex, condition, Condition::lt);
             }
             case LESSER_EQUALS_THAN -> {
-                return Predicates.lte(metadata, method, params, paramIndex, condition);
+                return compare(metadata, method, paramIndex, condition, Condition::lte);
             }
             case IN -> {
-                return Predicates.in(metadata, method, params, paramIndex, condition);
+                return compare(metadata, method, paramIndex, condition, Predicates::in);
             }
             case AND -> {
-                List<QueryCondition> andConditions = ((ConditionQueryValue) condition.value()).get();
-                Predicate<T> and = (Predicate<T>) andConditions.stream().map(c -> condition(c, metadata, method, params, paramIndex))
-                        .reduce(Predicate::and).orElseThrow();
-                return and;
+                List<Function<Object[], Condition>> andConditions = conditions(condition, metadata, method, paramIndex);
+                return params -> andConditions.stream().map(c -> c.apply(params))
+                        .reduce(Condition::and).orElseThrow();
             }
             case OR -> {
-                List<QueryCondition> orConditions = ((ConditionQueryValue) condition.value()).get();
-                Predicate<T> or = (Predicate<T>) orConditions.stream().map(c -> condition(c, metadata, method, params, paramIndex))
-                        .reduce(Predicate::or).orElseThrow();
-                return or;
+                List<Function<Object[], Condition>> orConditions = conditions(condition, metadata, method, paramIndex);
+                return params -> orConditions.stream().map(c -> c.apply(params))
+                        .reduce(Condition::or).orElseThrow();
             }
             case NOT -> {
                 List<QueryCondition> notConditions = ((ConditionQueryValue) condition.value()).get();
-                QueryCondition notCondition = notConditions.get(0);
-                return Predicate.not(condition(notCondition, metadata, method, params, paramIndex));
+                Function<Object[], Condition> notCondition = condition(notConditions.get(0), metadata, method, paramIndex);
+                return params -> notCondition.apply(params).negate();
             }
             default ->
                     throw new UnsupportedOperationException("There is no support to method query using the condition: "
                             + condition.condition());
         }
     }
+
+    private static List<Function<Object[], Condition>> conditions(QueryCondition condition, EntityMetadata metadata,
+                                                                  Method method, AtomicInteger paramIndex) {
+        List<QueryCondition> conditions = ((ConditionQueryValue) condition.value()).get();
+        return conditions.stream().map(c -> condition(c, metadata, method, paramIndex)).toList();
+    }
+
+    private static Function<Object[], Condition> compare(EntityMetadata metadata, Method method,
+                                                         AtomicInteger paramIndex, QueryCondition condition,
+                                                         BiFunction<FieldMetadata, Object, Condition> factory) {
+        FieldMetadata field = metadata.field(condition.name())
+                .orElseThrow(() -> new MappingException("The the entity " + metadata.type() + " " +
+                        "there is no field with the name: " + condition.name()));
+        Function<Object[], Object> param = param(method, condition.value(), paramIndex);
+        return params -> factory.apply(field, param.apply(params));
+    }
+
+    private static Condition in(FieldMetadata field, Object param) {
+        if (param instanceof Iterable<?> iterable) {
+            return Condition.in(field, iterable);
+        }
+        throw new MappingException("The IN condition at method query works with Iterable implementations");
+    }
+
+    private static Function<Object[], Object> param(Method method, QueryValue<?> value, AtomicInteger paramIndex) {
+        if (value.type().equals(ValueType.PARAMETER)) {
+            int index = paramIndex.getAndIncrement();
+            return params -> {
+                if (params == null || index > params.length - 1) {
+                    throw new MappingException("There is arguments missing at the method repository: "
+                            + method);
+                }
+                return requireNonNull(params[index], "parameter cannot be null at repository");
+            };
+        }
+        return params -> value.get();
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import jakarta.nosql.QueryMapper;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * The plan of a query that ran, see {@link Explainer#analyze(QueryMapper.MapperQueryBuild)}, with the entities it read
+ * and the time of each stage: {@code plan}, {@code read}, where the entities are read and tested, and {@code sort},
+ * where the matches are sorted when the plan is {@link QueryPlan.Order#SORT}.
+ *
+ * @param plan     the {@link QueryPlan}
+ * @param scanned  the number of entities read and tested against the condition
+ * @param matched  the number of entities that matched the condition
+ * @param returned the number of entities at the page
+ * @param stages   the time of each stage, in the order they ran
+ */
+public record QueryExplain(QueryPlan plan, long scanned, long matched, long returned, Map<String, Duration> stages) {
+
+    public QueryExplain {
+        Objects.requireNonNull(plan, "plan is required");
+        Objects.requireNonNull(stages, "stages is required");
+        stages = Collections.unmodifiableMap(stages);
+    }
+
+    /**
+     * Describes the plan and its run, such as
+     * {@code Book: KEY 3 candidates, order TOP, limit 10; scanned 3, matched 1, returned 1; plan 12us, read 30us, sort 0us}
+     *
+     * @return the description
+     */
+    public String explain() {
+        return plan.explain() + "; scanned " + scanned + ", matched " + matched + ", returned " + returned + "; "
+                + stages.entrySet().stream()
+                .map(e -> e.getKey() + ' ' + e.getValue().toNanos() / 1000 + "us")
+                .collect(Collectors.joining(", "));
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+}
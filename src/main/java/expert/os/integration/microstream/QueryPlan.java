@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import jakarta.nosql.QueryMapper;
+
+import java.util.Objects;
+
+/**
+ * The plan of a query, chosen before the entities are read: how the candidates are found, see {@link Access},
+ * and how the matches are ordered, see {@link Order}. It is returned by {@link Explainer#explain(QueryMapper.MapperQueryBuild)},
+ * and it is part of the {@link QueryExplain} of a query that ran.
+ *
+ * @param type      the entity type
+ * @param access    how the candidates are found
+ * @param order     how the matches are ordered
+ * @param estimated the number of candidates, the keys of a lookup or index, or every entity of a scan
+ * @param start     the first match of the page
+ * @param limit     the maximum number of matches, zero when there is no limit
+ * @param index     the field of the sorted index read in order, {@code null} when the order is not {@link Order#INDEX}
+ */
+public record QueryPlan(Class<?> type, Access access, Order order, long estimated, long start, long limit,
+                        String index) {
+
+    public QueryPlan {
+        Objects.requireNonNull(type, "type is required");
+        Objects.requireNonNull(access, "access is required");
+        Objects.requireNonNull(order, "order is required");
+    }
+
+    /**
+     * Describes the plan, such as {@code Book: KEY 2 candidates, order NONE}
+     *
+     * @return the description of the plan
+     */
+    public String explain() {
+        StringBuilder explain = new StringBuilder(type.getSimpleName()).append(": ")
+                .append(access).append(' ').append(estimated).append(" candidates, order ").append(order);
+        if (index != null) {
+            explain.append(" by ").append(index);
+        }
+        if (start > 0) {
+            explain.append(", start ").append(start);
+        }
+        if (limit > 0) {
+            explain.append(", limit ").append(limit);
+        }
+        return explain.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+
+    /**
+     * How the candidates of a query are found, every candidate is tested against the whole condition
+     */
+    public enum Access {
+        /**
+         * The candidates are the values of an equals or in condition on the id, read by key
+         */
+        KEY,
+        /**
+         * The candidates are the keys of a secondary index, see {@link Index}
+         */
+        INDEX,
+        /**
+         * Every entity of the type is a candidate
+         */
+        SCAN
+    }
+
+    /**
+     * How the matches of a query are ordered
+     */
+    public enum Order {
+        /**
+         * There is no sort, the matches keep the order they are read
+         */
+        NONE,
+        /**
+         * The candidates are read in the order of a sorted index, and the read stops when the page is complete
+         */
+        INDEX,
+        /**
+         * The first matches of the page are kept at a bounded heap, as they are read
+         */
+        TOP,
+        /**
+         * Every match is sorted
+         */
+        SORT
+    }
+}
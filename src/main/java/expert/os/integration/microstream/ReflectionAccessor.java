@@ -0,0 +1,70 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import jakarta.data.exceptions.MappingException;
+
+import java.lang.reflect.Field;
+
+/**
+ * The {@link FieldAccessor} that reads the field with reflection, the fallback when the field cannot be unreflected
+ * to a {@link java.lang.invoke.MethodHandle}.
+ *
+ * @param field the field, already accessible
+ */
+record ReflectionAccessor(Field field) implements FieldAccessor {
+
+    @Override
+    public Object get(Object entity) {
+        try {
+            return field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw error(entity);
+        }
+    }
+
+    @Override
+    public int getInt(Object entity) {
+        try {
+            return field.getInt(entity);
+        } catch (IllegalAccessException e) {
+            throw error(entity);
+        }
+    }
+
+    @Override
+    public long getLong(Object entity) {
+        try {
+            return field.getLong(entity);
+        } catch (IllegalAccessException e) {
+            throw error(entity);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(Object entity) {
+        try {
+            return field.getBoolean(entity);
+        } catch (IllegalAccessException e) {
+            throw error(entity);
+        }
+    }
+
+    private MappingException error(Object entity) {
+        return new MappingException("It cannot access the value from the field " + field + " at the entity "
+                + entity.getClass());
+    }
+}
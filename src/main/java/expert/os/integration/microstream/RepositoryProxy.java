@@ -18,23 +18,12 @@ package expert.os.integration.microstream;
 import jakarta.data.exceptions.MappingException;
 import jakarta.data.repository.Pageable;
 import jakarta.data.repository.PageableRepository;
-import jakarta.data.repository.Sort;
-import org.eclipse.jnosql.communication.query.DeleteQuery;
-import org.eclipse.jnosql.communication.query.QueryCondition;
-import org.eclipse.jnosql.communication.query.SelectQuery;
-import org.eclipse.jnosql.communication.query.Where;
-import org.eclipse.jnosql.communication.query.method.DeleteMethodProvider;
-import org.eclipse.jnosql.communication.query.method.SelectMethodProvider;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Predicate;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 class RepositoryProxy<T, K> implements InvocationHandler {
 
@@ -44,33 +33,39 @@ class RepositoryProxy<T, K> implements InvocationHandler {
 
     private final Class<T> type;
 
+    private final Map<Method, MethodQuery> queries;
+
     RepositoryProxy(PageableRepository<T, K> repository, MicrostreamTemplate template, Class<T> type) {
         this.repository = repository;
         this.template = template;
         this.type = type;
+        this.queries = new ConcurrentHashMap<>();
     }
 
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
-        RepositoryType type = RepositoryType.of(method);
+        MethodQuery query = this.queries.computeIfAbsent(method, m -> MethodQuery.of(m, template.metadata(this.type)));
+        RepositoryType type = query.type();
         switch (type) {
             case DEFAULT -> {
                 return method.invoke(repository, params);
             }
             case FIND_BY -> {
-                return ReturnType.of(method.getReturnType())
-                        .convert(query(method, params), ReturnType.pageable(params));
+                if (query.isPage()) {
+                    return query.convert(page(query, params), ReturnType.pageable(params));
+                }
+                return query.convert(query(query, params), ReturnType.pageable(params));
             }
             case COUNT_BY -> {
-                return query(method, params).count();
+                return this.template.count(this.type, query.condition(params));
             }
             case EXISTS_BY -> {
-                return query(method, params).findFirst().isPresent();
+                return this.template.exists(this.type, query.condition(params));
             }
             case DELETE_BY -> {
-                delete(method, params);
-                return Void.class;
+                long removed = this.template.remove(this.type, query.condition(params));
+                return removed(method, removed);
             }
             case OBJECT_METHOD -> {
                 return method.invoke(this, params);
@@ -80,62 +75,26 @@ class RepositoryProxy<T, K> implements InvocationHandler {
         }
     }
 
-    private Predicate<T> predicate(Where where, Method method, Object[] params, EntityMetadata metadata) {
-        QueryCondition condition = where.condition();
-        AtomicInteger paramIndex = new AtomicInteger(0);
-        Predicate<T> predicate = Predicates.condition(condition, metadata, method, params, paramIndex);
-        return metadata.<T>isInstance().and(predicate);
-    }
-
-
-    private void delete(Method method, Object[] params) {
-        EntityMetadata metadata = template.metadata(this.type);
-        DeleteMethodProvider provider = DeleteMethodProvider.INSTANCE;
-        DeleteQuery query = provider.apply(method, "");
-        Predicate<T> predicate = query
-                .where()
-                .map(w -> {
-                    Predicate<T> p = predicate(w, method, params, metadata);
-                    return p;
-                }).orElse(metadata.isInstance());
-
-        this.template.remove((Predicate<Object>) predicate);
+    private static Object removed(Method method, long removed) {
+        Class<?> type = method.getReturnType();
+        if (long.class.equals(type) || Long.class.equals(type)) {
+            return removed;
+        } else if (int.class.equals(type) || Integer.class.equals(type)) {
+            return (int) removed;
+        }
+        return Void.class;
     }
 
-    private Stream<T> query(Method method, Object[] params) {
-        EntityMetadata metadata = template.metadata(this.type);
-        SelectMethodProvider provider = SelectMethodProvider.INSTANCE;
-        SelectQuery query = provider.apply(method, "");
-        Predicate<T> predicate = query
-                .where()
-                .map(w -> {
-                    Predicate<T> p = predicate(w, method, params, metadata);
-                    return p;
-                }).orElse(metadata.isInstance());
+    private List<T> query(MethodQuery query, Object[] params) {
         Pageable pageable = ReturnType.pageable(params);
-        long skip = pageable == null ? query.skip() : MicrostreamPage.skip(pageable);
-        long limit = pageable == null ? query.limit() : pageable.size();
-
-        List<Comparator<?>> comparators = comparator(ReturnType.sort(query.orderBy(), params), metadata);
-        return this.template.entities(predicate, comparators, skip, limit);
+        return this.template.result(this.type, query.condition(params), query.comparators(params),
+                query.skip(pageable), query.limit(pageable));
     }
 
-
-    private List<Comparator<?>> comparator(List<Sort> sorts, EntityMetadata metadata) {
-        Comparator<T> comparator = null;
-        for (Sort sort : sorts) {
-            Optional<FieldMetadata> field = metadata.field(sort.property());
-            Comparator<T> comparator1 = field.map(f -> sort.isAscending() ? f.comparator() : f.reversed())
-                    .orElseThrow(() -> new MappingException("There is not field with the name " + sort.property() +
-                            " to order"));
-            if (comparator == null) {
-                comparator = comparator1;
-            } else {
-                comparator = comparator.thenComparing(comparator1);
-            }
-        }
-        return comparator == null ? Collections.emptyList() :
-                Collections.singletonList(comparator);
+    private PageResult<T> page(MethodQuery query, Object[] params) {
+        Pageable pageable = ReturnType.pageable(params);
+        return this.template.page(this.type, query.condition(params), query.comparators(params),
+                query.skip(pageable), query.limit(pageable));
     }
 
 }
@@ -0,0 +1,211 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A size bounded cache, with least recently used eviction, of the query results of {@link DataStorage}.
+ * A result is keyed by the entity type, the {@link Condition}, the sorts and the page; only the queries
+ * whose condition and sorts have a structure, see {@link Condition#isStructured()} and {@link FieldComparator},
+ * are cached.
+ * <p>
+ * Each entity type has a version, incremented after every write of the type. A result keeps the version read
+ * before the query ran, and it is stored, or returned, only while the version is still the same, so a write
+ * concurrent to the query never leaves a stale result behind, and a write invalidates only the results of its type.
+ */
+final class ResultCache {
+
+    static final ResultCache DISABLED = new ResultCache(0);
+
+    private final int capacity;
+
+    private final Map<Key, Result> results;
+
+    private final Map<Class<?>, AtomicLong> versions;
+
+    private final AtomicLong hits;
+
+    private final AtomicLong misses;
+
+    private ResultCache(int capacity) {
+        this.capacity = capacity;
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+                return size() > ResultCache.this.capacity;
+            }
+        };
+        this.versions = new ConcurrentHashMap<>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Returns the cached result of the query, or runs the query and caches its result
+     *
+     * @param type      the entity type
+     * @param predicate the filter
+     * @param sorts     the sorts
+     * @param start     the number of values to skip
+     * @param limit     the maximum number of values
+     * @param query     the query
+     * @param <V>       the entity type
+     * @return the result
+     */
+    <V> List<V> get(Class<?> type, Predicate<Object> predicate, List<Comparator<?>> sorts, long start, long limit,
+                    Supplier<List<V>> query) {
+        if (this.capacity == 0) {
+            return query.get();
+        }
+        Optional<Key> key = key(type, predicate, sorts, start, limit);
+        if (key.isEmpty()) {
+            return query.get();
+        }
+        AtomicLong version = version(type);
+        long current = version.get();
+        synchronized (this.results) {
+            Result result = this.results.get(key.get());
+            if (result != null && result.version() == current) {
+                this.hits.incrementAndGet();
+                return (List<V>) result.values();
+            }
+        }
+        this.misses.incrementAndGet();
+        List<V> values = query.get();
+        synchronized (this.results) {
+            if (version.get() == current) {
+                this.results.put(key.get(), new Result(current, values));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Invalidates the results of the entity type, it is called after the write
+     *
+     * @param type the entity type
+     */
+    void invalidate(Class<?> type) {
+        if (this.capacity > 0) {
+            version(type).incrementAndGet();
+        }
+    }
+
+    /**
+     * Invalidates the results of every entity type
+     */
+    void invalidate() {
+        if (this.capacity > 0) {
+            this.versions.values().forEach(AtomicLong::incrementAndGet);
+            synchronized (this.results) {
+                this.results.clear();
+            }
+        }
+    }
+
+    /**
+     * The number of queries answered from the cache
+     *
+     * @return the hits
+     */
+    long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * The number of cacheable queries that ran
+     *
+     * @return the misses
+     */
+    long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the hits, misses and size of the cache
+     *
+     * @return the {@link CacheStats}
+     */
+    CacheStats stats() {
+        return new CacheStats(hits(), misses(), size());
+    }
+
+    /**
+     * The number of results held
+     *
+     * @return the size
+     */
+    int size() {
+        synchronized (this.results) {
+            return this.results.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache{" +
+                "capacity=" + capacity +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                '}';
+    }
+
+    /**
+     * Creates a cache with the capacity
+     *
+     * @param capacity the maximum number of results, zero disables the cache
+     * @return a {@link ResultCache}
+     * @throws IllegalArgumentException when capacity is negative
+     */
+    static ResultCache of(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity must not be negative: " + capacity);
+        }
+        return capacity == 0 ? DISABLED : new ResultCache(capacity);
+    }
+
+    private AtomicLong version(Class<?> type) {
+        return this.versions.computeIfAbsent(type, k -> new AtomicLong());
+    }
+
+    private static Optional<Key> key(Class<?> type, Predicate<Object> predicate, List<Comparator<?>> sorts,
+                                     long start, long limit) {
+        if (!(predicate instanceof Condition condition) || !condition.isStructured()) {
+            return Optional.empty();
+        }
+        for (Comparator<?> sort : sorts) {
+            if (!(sort instanceof FieldComparator)) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new Key(type, condition, List.copyOf(sorts), start, limit));
+    }
+
+    private record Key(Class<?> type, Condition condition, List<Comparator<?>> sorts, long start, long limit) {
+    }
+
+    private record Result(long version, List<?> values) {
+    }
+}
@@ -32,7 +32,6 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 enum ReturnType {
@@ -44,8 +43,8 @@ enum ReturnType {
         }
 
         @Override
-        <T> Object convert(Stream<T> stream, Pageable pageable) {
-            return stream;
+        <T> Object convert(List<T> entities, Pageable pageable) {
+            return entities.stream();
         }
     }, SET {
         @Override
@@ -54,8 +53,8 @@ enum ReturnType {
         }
 
         @Override
-        <T> Object convert(Stream<T> stream, Pageable pageable) {
-            return stream.collect(Collectors.toUnmodifiableSet());
+        <T> Object convert(List<T> entities, Pageable pageable) {
+            return Set.copyOf(entities);
         }
     }, SORTED_SET {
         @Override
@@ -65,8 +64,8 @@ enum ReturnType {
         }
 
         @Override
-        <T> Object convert(Stream<T> stream, Pageable pageable) {
-            return stream.collect(Collectors.toCollection(TreeSet::new));
+        <T> Object convert(List<T> entities, Pageable pageable) {
+            return new TreeSet<>(entities);
         }
     }, QUEUE {
         @Override
@@ -76,8 +75,8 @@ enum ReturnType {
         }
 
         @Override
-        <T> Object convert(Stream<T> stream, Pageable pageable) {
-            return stream.collect(Collectors.toCollection(ArrayDeque::new));
+        <T> Object convert(List<T> entities, Pageable pageable) {
+            return new ArrayDeque<>(entities);
         }
     },
     LIST {
@@ -89,8 +88,8 @@ enum ReturnType {
         }
 
         @Override
-        <T> Object convert(Stream<T> stream, Pageable pageable) {
-            return stream.collect(Collectors.toUnmodifiableList());
+        <T> Object convert(List<T> entities, Pageable pageable) {
+            return entities;
         }
     }, PAGE {
         @Override
@@ -99,10 +98,16 @@ enum ReturnType {
         }
 
         @Override
-        <T> Object convert(Stream<T> stream, Pageable pageable) {
-            List<T> entities = stream.collect(Collectors.toUnmodifiableList());
+        <T> Object convert(List<T> entities, Pageable pageable) {
             return MicrostreamPage.of(entities, Objects.requireNonNullElseGet(pageable, () -> Pageable.ofSize(entities.size())));
         }
+
+        @Override
+        <T> Object convert(PageResult<T> result, Pageable pageable) {
+            List<T> entities = result.entities();
+            return MicrostreamPage.of(entities, Objects.requireNonNullElseGet(pageable, () -> Pageable.ofSize(entities.size())),
+                    result.total());
+        }
     }, OPTIONAL {
         @Override
         boolean isCompatible(Class<?> type) {
@@ -110,8 +115,8 @@ enum ReturnType {
         }
 
         @Override
-        <T> Object convert(Stream<T> stream, Pageable pageable) {
-            return stream.findFirst();
+        <T> Object convert(List<T> entities, Pageable pageable) {
+            return entities.stream().findFirst();
         }
     }, DEFAULT {
         @Override
@@ -120,14 +125,26 @@ enum ReturnType {
         }
 
         @Override
-        <T> Object convert(Stream<T> stream, Pageable pageable) {
-            return stream.findFirst().orElse(null);
+        <T> Object convert(List<T> entities, Pageable pageable) {
+            return entities.isEmpty() ? null : entities.get(0);
         }
     };
 
     abstract boolean isCompatible(Class<?> type);
 
-    abstract <T> Object convert(Stream<T> stream, Pageable pageable);
+    abstract <T> Object convert(List<T> entities, Pageable pageable);
+
+    /**
+     * Converts the page of a query, with the number of matches, to the return type, only a {@link Page} keeps the number
+     *
+     * @param result   the page and the number of matches
+     * @param pageable the pageable or null
+     * @param <T>      the entity type
+     * @return the converted result
+     */
+    <T> Object convert(PageResult<T> result, Pageable pageable) {
+        return convert(result.entities(), pageable);
+    }
 
     static ReturnType of(Class<?> type) {
         return Arrays.stream(ReturnType.values())
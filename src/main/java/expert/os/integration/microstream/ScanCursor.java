@@ -0,0 +1,139 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+
+package expert.os.integration.microstream;
+
+import one.microstream.collections.lazy.LazyHashMap;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The position of a scan in a stripe, so the scan resumes once the caller released the lock of the stripe and took
+ * it again. The entries of a {@link LazyHashMap} are in the order of the hash of their keys, so the position is the
+ * last hash read and the keys read with it: the entries added or removed meanwhile neither shift the position nor
+ * are read twice, and a segment whose hashes are all before the position, or the last segment the scan finished, is
+ * skipped without loading it.
+ * <p>
+ * It also keeps the segments that the scan loaded beyond the {@link StorageSettings#scanBudget()}, that the caller
+ * releases under the write lock of the stripe once they hold as many entities as the budget, so the segments loaded
+ * by the scan never hold much more than twice the budget, during the scan as well as after it.
+ */
+final class ScanCursor {
+
+    private final int budget;
+
+    private final Set<Object> keys = new HashSet<>();
+
+    private final List<LazyHashMap<Object, Object>.Segment<?>> loaded = new ArrayList<>();
+
+    private LazyHashMap<Object, Object>.Segment<?> finished;
+
+    private boolean started;
+
+    private int hash;
+
+    private long read;
+
+    private long kept;
+
+    ScanCursor(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Checks if every entry of the segment is before the position, or the scan finished the segment
+     *
+     * @param segment the segment
+     * @return {@code true} when the scan already read the segment
+     */
+    boolean isPast(LazyHashMap<Object, Object>.Segment<?> segment) {
+        return segment == this.finished || this.started && segment.compareHash(this.hash) > 0;
+    }
+
+    /**
+     * Keeps the segment whose entries were all read, since the range of hashes of a segment might go beyond its last
+     * entry, and the position alone would load it again
+     *
+     * @param segment the segment
+     */
+    void finished(LazyHashMap<Object, Object>.Segment<?> segment) {
+        this.finished = segment;
+    }
+
+    /**
+     * Checks if the entry is before the position, or it is one of the keys read with the hash of the position
+     *
+     * @param entry the entry
+     * @return {@code true} when the scan already read the entry
+     */
+    boolean isRead(LazyHashMap.Entry<Object, Object> entry) {
+        return this.started && (entry.getHash() < this.hash
+                || entry.getHash() == this.hash && this.keys.contains(entry.getKey()));
+    }
+
+    /**
+     * Moves the position to the entry
+     *
+     * @param entry the entry read
+     */
+    void read(LazyHashMap.Entry<Object, Object> entry) {
+        if (!this.started || entry.getHash() != this.hash) {
+            this.started = true;
+            this.hash = entry.getHash();
+            this.keys.clear();
+        }
+        this.keys.add(entry.getKey());
+    }
+
+    /**
+     * Counts the entities of a segment that the scan loaded, once they exceed the budget the segment is kept to be
+     * released
+     *
+     * @param segment the segment that was not loaded before the scan
+     */
+    void loaded(LazyHashMap<Object, Object>.Segment<?> segment) {
+        this.read += segment.size();
+        if (this.budget > 0 && this.read > this.budget) {
+            this.loaded.add(segment);
+            this.kept += segment.size();
+        }
+    }
+
+    /**
+     * Checks if the segments loaded beyond the budget, that were not returned yet, hold as many entities as the budget,
+     * so the scan pauses for the caller to release them
+     *
+     * @return {@code true} when the segments are to be released
+     */
+    boolean isFull() {
+        return this.budget > 0 && this.kept >= this.budget;
+    }
+
+    /**
+     * Returns the segments loaded beyond the budget, that were not returned before
+     *
+     * @return the segments to release
+     */
+    List<LazyHashMap<Object, Object>.Segment<?>> release() {
+        List<LazyHashMap<Object, Object>.Segment<?>> segments = List.copyOf(this.loaded);
+        this.loaded.clear();
+        this.kept = 0;
+        return segments;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * The {@link EntityIndex} in the order of a {@link Comparable} field, it answers equals and range conditions
+ * and returns the keys in the order of the field.
+ * It keeps the indexed value of every key, so an entity changed in place is moved to its new value on the next put.
+ */
+final class SortedIndex implements EntityIndex {
+
+    private final FieldMetadata field;
+
+    private final NavigableMap<Object, Set<Object>> values;
+
+    private final Map<Object, Object> keys;
+
+    SortedIndex(FieldMetadata field) {
+        this.field = Objects.requireNonNull(field, "field is required");
+        this.values = new ConcurrentSkipListMap<>();
+        this.keys = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public FieldMetadata field() {
+        return field;
+    }
+
+    @Override
+    public void put(Object key, Object entity) {
+        Object value = this.field.get(entity);
+        Object previous = value == null ? this.keys.remove(key) : this.keys.put(key, value);
+        if (Objects.equals(previous, value)) {
+            return;
+        }
+        if (previous != null) {
+            detach(previous, key);
+        }
+        if (value != null) {
+            this.values.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    @Override
+    public void remove(Object key) {
+        Object previous = this.keys.remove(key);
+        if (previous != null) {
+            detach(previous, key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.keys.clear();
+        this.values.clear();
+    }
+
+    @Override
+    public Set<Object> keys(Object value) {
+        if (value == null) {
+            return Collections.emptySet();
+        }
+        try {
+            Set<Object> keys = this.values.get(value);
+            return keys == null ? Collections.emptySet() : Collections.unmodifiableSet(keys);
+        } catch (ClassCastException exp) {
+            return Collections.emptySet();
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.keys.size();
+    }
+
+    @Override
+    public Optional<Set<Object>> range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        try {
+            NavigableMap<Object, Set<Object>> range = this.values;
+            if (from != null) {
+                range = range.tailMap(from, fromInclusive);
+            }
+            if (to != null) {
+                range = range.headMap(to, toInclusive);
+            }
+            Set<Object> keys = new HashSet<>();
+            range.values().forEach(keys::addAll);
+            return Optional.of(keys);
+        } catch (ClassCastException exp) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Stream<Set<Object>>> ordered(boolean ascending) {
+        NavigableMap<Object, Set<Object>> map = ascending ? this.values : this.values.descendingMap();
+        return Optional.of(map.values().stream());
+    }
+
+    private void detach(Object value, Object key) {
+        this.values.computeIfPresent(value, (v, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "SortedIndex{" +
+                "field=" + field +
+                ", values=" + values.size() +
+                '}';
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import org.eclipse.microprofile.config.Config;
+
+import java.util.Objects;
+
+/**
+ * The settings of the {@link DataStorage}, loaded from Eclipse MicroProfile Config.
+ *
+ * @param stripes      the number of stripes of each entity type, where the keys are hashed, so writes on different
+ *                     stripes run concurrently. The property {@value #STRIPES}, the default value is one.
+ * @param commitWindow the time, in milliseconds, that the group commit waits for more changes before the commit.
+ *                     The property {@value #COMMIT_WINDOW}, the default value is zero, where each write is committed
+ *                     on its own.
+ * @param commitBatch  the maximum number of instances on a single group commit.
+ *                     The property {@value #COMMIT_BATCH}, the default value is {@value #DEFAULT_COMMIT_BATCH}.
+ * @param parallelThreshold the minimum number of entities of a stripe to scan it in parallel, at the common
+ *                          {@link java.util.concurrent.ForkJoinPool}. The property {@value #PARALLEL_THRESHOLD},
+ *                          the default value is zero, where every scan is sequential.
+ * @param scanBudget        the maximum number of entities, of the lazy segments loaded by a scan, that stay loaded
+ *                          after it; the scan releases the other segments it loaded as soon as it reads them.
+ *                          The property {@value #SCAN_BUDGET}, the default value is zero, where a scan keeps every
+ *                          segment it loads.
+ * @param cacheSize         the maximum number of query results at the {@link ResultCache}.
+ *                          The property {@value #CACHE_SIZE}, the default value is zero, where the cache is disabled.
+ * @param deleteBatch       the maximum number of entities removed on a single commit of a removal by a condition,
+ *                          the lock of the stripe is released between the batches. The property {@value #DELETE_BATCH},
+ *                          the default value is zero, where the matches of each stripe are removed in a single commit.
+ * @param expiryInterval    the time, in milliseconds, between the runs of the reaper that removes the expired entities,
+ *                          see {@link ExpiryQueue}. The property {@value #EXPIRY_INTERVAL}, the default value is
+ *                          {@value #DEFAULT_EXPIRY_INTERVAL}.
+ */
+record StorageSettings(int stripes, long commitWindow, int commitBatch, int parallelThreshold, int scanBudget,
+                       int cacheSize, int deleteBatch, long expiryInterval) {
+
+    static final String STRIPES = "microstream.storage.stripes";
+
+    static final String COMMIT_WINDOW = "microstream.storage.commit.window";
+
+    static final String COMMIT_BATCH = "microstream.storage.commit.batch";
+
+    static final String PARALLEL_THRESHOLD = "microstream.storage.parallel.threshold";
+
+    static final String SCAN_BUDGET = "microstream.storage.scan.budget";
+
+    static final String CACHE_SIZE = "microstream.storage.cache.size";
+
+    static final String DELETE_BATCH = "microstream.storage.delete.batch";
+
+    static final String EXPIRY_INTERVAL = "microstream.storage.expiry.interval";
+
+    static final int DEFAULT_COMMIT_BATCH = 1000;
+
+    static final long DEFAULT_EXPIRY_INTERVAL = 1000L;
+
+    static final StorageSettings DEFAULT = new StorageSettings(1);
+
+    StorageSettings {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("The " + STRIPES + " must be at least one, the value: " + stripes);
+        }
+        if (commitWindow < 0) {
+            throw new IllegalArgumentException("The " + COMMIT_WINDOW + " must not be negative, the value: " + commitWindow);
+        }
+        if (commitBatch < 1) {
+            throw new IllegalArgumentException("The " + COMMIT_BATCH + " must be at least one, the value: " + commitBatch);
+        }
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("The " + PARALLEL_THRESHOLD + " must not be negative, the value: "
+                    + parallelThreshold);
+        }
+        if (scanBudget < 0) {
+            throw new IllegalArgumentException("The " + SCAN_BUDGET + " must not be negative, the value: " + scanBudget);
+        }
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("The " + CACHE_SIZE + " must not be negative, the value: " + cacheSize);
+        }
+        if (deleteBatch < 0) {
+            throw new IllegalArgumentException("The " + DELETE_BATCH + " must not be negative, the value: " + deleteBatch);
+        }
+        if (expiryInterval < 1) {
+            throw new IllegalArgumentException("The " + EXPIRY_INTERVAL + " must be at least one, the value: "
+                    + expiryInterval);
+        }
+    }
+
+    StorageSettings(int stripes) {
+        this(stripes, 0L, DEFAULT_COMMIT_BATCH, 0, 0, 0, 0, DEFAULT_EXPIRY_INTERVAL);
+    }
+
+    /**
+     * Checks if the writes are grouped in a single commit
+     *
+     * @return {@code true} when the {@link #commitWindow()} is positive
+     */
+    boolean isGroupCommit() {
+        return commitWindow > 0;
+    }
+
+    /**
+     * Checks if a stripe with the number of entities is scanned in parallel
+     *
+     * @param size the number of entities of the stripe
+     * @return {@code true} when the {@link #parallelThreshold()} is positive and the size reaches it
+     */
+    boolean isParallel(int size) {
+        return parallelThreshold > 0 && size >= parallelThreshold;
+    }
+
+    /**
+     * Checks if a scan releases the lazy segments it loads
+     *
+     * @return {@code true} when the {@link #scanBudget()} is positive
+     */
+    boolean isScanBudget() {
+        return scanBudget > 0;
+    }
+
+    /**
+     * Checks if a removal by a condition commits in batches
+     *
+     * @return {@code true} when the {@link #deleteBatch()} is positive
+     */
+    boolean isDeleteBatch() {
+        return deleteBatch > 0;
+    }
+
+    /**
+     * Creates a {@link StorageSettings} from the configuration
+     *
+     * @param config the configuration
+     * @return a {@link StorageSettings} instance
+     * @throws NullPointerException when config is null
+     */
+    static StorageSettings of(Config config) {
+        Objects.requireNonNull(config, "config is required");
+        int stripes = config.getOptionalValue(STRIPES, Integer.class).orElse(DEFAULT.stripes());
+        long commitWindow = config.getOptionalValue(COMMIT_WINDOW, Long.class).orElse(DEFAULT.commitWindow());
+        int commitBatch = config.getOptionalValue(COMMIT_BATCH, Integer.class).orElse(DEFAULT.commitBatch());
+        int parallelThreshold = config.getOptionalValue(PARALLEL_THRESHOLD, Integer.class)
+                .orElse(DEFAULT.parallelThreshold());
+        int scanBudget = config.getOptionalValue(SCAN_BUDGET, Integer.class).orElse(DEFAULT.scanBudget());
+        int cacheSize = config.getOptionalValue(CACHE_SIZE, Integer.class).orElse(DEFAULT.cacheSize());
+        int deleteBatch = config.getOptionalValue(DELETE_BATCH, Integer.class).orElse(DEFAULT.deleteBatch());
+        long expiryInterval = config.getOptionalValue(EXPIRY_INTERVAL, Long.class).orElse(DEFAULT.expiryInterval());
+        return new StorageSettings(stripes, commitWindow, commitBatch, parallelThreshold, scanBudget, cacheSize,
+                deleteBatch, expiryInterval);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the first values, up to the capacity, in the order of the comparator. It holds them at a bounded heap,
+ * where the head is the greatest value kept, so each value replaces the head only when it comes before it.
+ * The values that compare as equal keep the order of arrival, as a stable sort would.
+ *
+ * @param <V> the value type
+ */
+final class TopSelection<V> implements Consumer<V> {
+
+    private final int capacity;
+
+    private final Comparator<Ranked<V>> comparator;
+
+    private final PriorityQueue<Ranked<V>> heap;
+
+    private long sequence;
+
+    private TopSelection(int capacity, Comparator<V> comparator) {
+        this.capacity = capacity;
+        Comparator<Ranked<V>> order = Comparator.comparing(Ranked::value, comparator);
+        this.comparator = order.thenComparingLong(Ranked::sequence);
+        this.heap = new PriorityQueue<>(Math.min(capacity, 1024), this.comparator.reversed());
+    }
+
+    @Override
+    public void accept(V value) {
+        Ranked<V> ranked = new Ranked<>(value, this.sequence++);
+        if (this.heap.size() < this.capacity) {
+            this.heap.offer(ranked);
+        } else if (this.comparator.compare(ranked, this.heap.peek()) < 0) {
+            this.heap.poll();
+            this.heap.offer(ranked);
+        }
+    }
+
+    /**
+     * Returns the values kept, in the order of the comparator
+     *
+     * @return the sorted values
+     */
+    List<V> toList() {
+        List<Ranked<V>> ranked = new ArrayList<>(this.heap);
+        ranked.sort(this.comparator);
+        List<V> values = new ArrayList<>(ranked.size());
+        for (Ranked<V> value : ranked) {
+            values.add(value.value());
+        }
+        return values;
+    }
+
+    /**
+     * Creates a selection that keeps the first values, up to the capacity
+     *
+     * @param capacity   the maximum number of values
+     * @param comparator the order
+     * @param <V>        the value type
+     * @return a new {@link TopSelection}
+     * @throws NullPointerException     when comparator is null
+     * @throws IllegalArgumentException when capacity is not positive
+     */
+    static <V> TopSelection<V> of(int capacity, Comparator<V> comparator) {
+        Objects.requireNonNull(comparator, "comparator is required");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        return new TopSelection<>(capacity, comparator);
+    }
+
+    private record Ranked<V>(V value, long sequence) {
+    }
+}
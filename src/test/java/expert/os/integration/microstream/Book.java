@@ -27,9 +27,11 @@ public class Book {
     @Id
     private String isbn;
     @Column
+    @Index
     private String title;
 
     @Column
+    @Index(Index.Type.SORTED)
     private Integer edition;
 
     @Column
@@ -0,0 +1,250 @@
+/*
+ *  Copyright (c) 2023 Otavio & Rudy
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import jakarta.data.exceptions.MappingException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+class ConditionTest {
+
+    private EntityMetadata metadata;
+
+    private Indexes indexes;
+
+    @BeforeEach
+    public void setUp() {
+        this.metadata = EntityMetadata.of(Book.class);
+        this.indexes = Indexes.of(metadata);
+        List.of(book("1", "Effective Java", 1), book("2", "Effective Java", 2), book("3", "Clean Code", 1))
+                .forEach(b -> this.indexes.put(b.isbn(), b));
+    }
+
+    @Test
+    public void shouldReturnKeysFromEq() {
+        Condition condition = Condition.eq(field("title"), "Effective Java");
+        Assertions.assertThat(condition.keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactlyInAnyOrder("1", "2"));
+        Assertions.assertThat(condition.test(book("4", "Effective Java", 3))).isTrue();
+        Assertions.assertThat(condition.test(book("5", "Clean Code", 3))).isFalse();
+    }
+
+    @Test
+    public void shouldReturnKeysFromIn() {
+        Condition condition = Condition.in(field("title"), List.of("Effective Java", "Clean Code"));
+        Assertions.assertThat(condition.keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactlyInAnyOrder("1", "2", "3"));
+    }
+
+    @Test
+    public void shouldNotNarrowWithoutIndex() {
+        Condition condition = Condition.eq(field("author"), "Joshua Bloch");
+        Assertions.assertThat(condition.keys(indexes)).isEmpty();
+        Assertions.assertThat(Condition.gt(field("title"), "Clean Code").keys(indexes)).isEmpty();
+        Assertions.assertThat(Condition.of(b -> true).keys(indexes)).isEmpty();
+    }
+
+    @Test
+    public void shouldReturnKeysFromRange() {
+        Assertions.assertThat(Condition.gt(field("edition"), 1).keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactly("2"));
+        Assertions.assertThat(Condition.gte(field("edition"), 1).keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactlyInAnyOrder("1", "2", "3"));
+        Assertions.assertThat(Condition.lt(field("edition"), 2).keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactlyInAnyOrder("1", "3"));
+        Assertions.assertThat(Condition.lte(field("edition"), 0).keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).isEmpty());
+        Assertions.assertThat(Condition.gt(field("edition"), 1).test(book("4", "Clean Code", 2))).isTrue();
+    }
+
+    @Test
+    public void shouldNarrowAnd() {
+        Condition title = Condition.eq(field("title"), "Effective Java");
+        Condition author = Condition.eq(field("author"), "Joshua Bloch");
+        Condition edition = Condition.eq(field("edition"), 2);
+        Assertions.assertThat(title.and(author).keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactlyInAnyOrder("1", "2"));
+        Condition condition = title.and(edition);
+        Assertions.assertThat(condition.keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactly("2"));
+        Assertions.assertThat(condition.test(book("2", "Effective Java", 2))).isTrue();
+        Assertions.assertThat(condition.test(book("1", "Effective Java", 1))).isFalse();
+
+        Condition both = title.and(Condition.eq(field("title"), "Clean Code"));
+        Assertions.assertThat(both.keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).isEmpty());
+    }
+
+    @Test
+    public void shouldNarrowOrOnlyWhenBothSidesAreIndexed() {
+        Condition effectiveJava = Condition.eq(field("title"), "Effective Java");
+        Condition cleanCode = Condition.eq(field("title"), "Clean Code");
+        Assertions.assertThat(effectiveJava.or(cleanCode).keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactlyInAnyOrder("1", "2", "3"));
+        Assertions.assertThat(effectiveJava.or(Condition.eq(field("author"), "Robert Martin")).keys(indexes)).isEmpty();
+    }
+
+    @Test
+    public void shouldNotNarrowNegate() {
+        Predicate<Object> condition = Predicate.not(Condition.eq(field("title"), "Effective Java"));
+        Assertions.assertThat(condition).isInstanceOf(Condition.class);
+        Assertions.assertThat(((Condition) condition).keys(indexes)).isEmpty();
+        Assertions.assertThat(condition.test(book("3", "Clean Code", 1))).isTrue();
+    }
+
+    private FieldMetadata field(String name) {
+        return this.metadata.field(name).orElseThrow();
+    }
+
+    private Book book(String isbn, String title, int edition) {
+        return Book.builder().isbn(isbn).title(title).edition(edition).build();
+    }
+
+    @Test
+    public void shouldBeEqualWithSameStructure() {
+        Condition condition = Condition.eq(field("title"), "Effective Java").and(Condition.gte(field("edition"), 2));
+        Condition same = Condition.eq(field("title"), "Effective Java").and(Condition.gte(field("edition"), 2));
+
+        Assertions.assertThat(condition).isEqualTo(same).hasSameHashCodeAs(same);
+        Assertions.assertThat(condition.isStructured()).isTrue();
+        Assertions.assertThat(condition).isNotEqualTo(Condition.eq(field("title"), "Effective Java")
+                .and(Condition.gt(field("edition"), 2)));
+        Assertions.assertThat(condition.negate()).isEqualTo(same.negate());
+        Assertions.assertThat(Condition.all()).isEqualTo(Condition.all());
+    }
+
+    @Test
+    public void shouldNotBeStructuredWithPredicate() {
+        Condition condition = Condition.eq(field("title"), "Effective Java").or(b -> true);
+        Assertions.assertThat(condition.isStructured()).isFalse();
+        Assertions.assertThat(condition.negate().isStructured()).isFalse();
+    }
+
+    @Test
+    public void shouldNotUseIndexOfAnotherEntity() {
+        FieldMetadata model = EntityMetadata.of(Car.class).fields().get(0);
+        Assertions.assertThat(model.ordinal()).isEqualTo(field("title").ordinal());
+        Assertions.assertThat(Condition.eq(model, "Effective Java").keys(indexes)).isEmpty();
+    }
+
+    @Test
+    public void shouldReturnValuesAsKeysFromInOnId() {
+        Condition condition = Condition.in(field("isbn"), List.of("3", "1", "10"));
+        Assertions.assertThat(condition.keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactly("3", "1", "10"));
+        Assertions.assertThat(Condition.eq(field("isbn"), "1").keys(Indexes.of(EntityMetadata.of(Car.class)))).isEmpty();
+        Assertions.assertThat(Condition.eq(field("isbn"), "1").keys(Indexes.EMPTY)).isEmpty();
+    }
+
+    @Test
+    public void shouldTestInOnPrimitives() throws NoSuchFieldException {
+        FieldMetadata number = sample("number");
+        FieldMetadata total = sample("total");
+        Sample sample = new Sample(42, 7L);
+
+        Assertions.assertThat(Condition.in(number, List.of(1, 42, 3)).test(sample)).isTrue();
+        Assertions.assertThat(Condition.in(number, List.of(1, 3)).test(sample)).isFalse();
+        Assertions.assertThat(Condition.in(number, List.of(42L)).test(sample)).isFalse();
+        Assertions.assertThat(Condition.in(total, List.of(7L, 8L)).test(sample)).isTrue();
+        Assertions.assertThat(Condition.in(total, List.of(7)).test(sample)).isFalse();
+        Assertions.assertThat(Condition.in(total, List.of()).test(sample)).isFalse();
+        Assertions.assertThat(Condition.in(number, List.of(1, 42))).isEqualTo(Condition.in(number, List.of(42, 1)));
+    }
+
+    @Test
+    public void shouldTestMostSelectiveConditionFirst() {
+        List<String> tested = new ArrayList<>();
+        Condition condition = Condition.of(b -> tested.add("filter"))
+                .and(Condition.gte(field("edition"), 1))
+                .and(Condition.eq(field("title"), "Clean Code"));
+
+        Assertions.assertThat(condition.test(book("1", "Effective Java", 1))).isFalse();
+        Assertions.assertThat(tested).isEmpty();
+        Assertions.assertThat(condition.test(book("3", "Clean Code", 1))).isTrue();
+        Assertions.assertThat(tested).containsExactly("filter");
+    }
+
+    @Test
+    public void shouldFlattenNestedConditions() {
+        Condition title = Condition.eq(field("title"), "Clean Code");
+        Condition edition = Condition.gt(field("edition"), 1);
+        Condition author = Condition.eq(field("author"), "Robert Martin");
+
+        Assertions.assertThat(title.and(edition).and(author)).isEqualTo(title.and(edition.and(author)));
+        Assertions.assertThat(title.or(edition).or(author)).isEqualTo(title.or(edition.or(author)));
+        Assertions.assertThat(title.and(edition.and(author)).keys(indexes)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).isEmpty());
+    }
+
+    @Test
+    public void shouldCompileRanges() throws NoSuchFieldException {
+        FieldMetadata number = sample("number");
+        FieldMetadata total = sample("total");
+        Sample sample = new Sample(42, 7L);
+
+        Assertions.assertThat(Condition.gt(number, 41).test(sample)).isTrue();
+        Assertions.assertThat(Condition.gte(number, 42).test(sample)).isTrue();
+        Assertions.assertThat(Condition.lt(number, 42).test(sample)).isFalse();
+        Assertions.assertThat(Condition.lte(total, 7L).test(sample)).isTrue();
+        Assertions.assertThat(Condition.gt(field("edition"), 1).test(Book.builder().isbn("4").build())).isFalse();
+        Assertions.assertThatThrownBy(() -> Condition.gt(number, 41L).test(sample)).isInstanceOf(MappingException.class);
+    }
+
+    @Test
+    public void shouldBeCoveredOnlyByIndexesOnFinalFields() {
+        EntityMetadata magazines = EntityMetadata.of(Magazine.class);
+        Indexes indexes = Indexes.of(magazines);
+        Condition title = Condition.eq(magazines.field("title").orElseThrow(), "Java Magazine");
+        Condition edition = Condition.gt(magazines.field("edition").orElseThrow(), 1);
+
+        Assertions.assertThat(title.isCovered(indexes)).isTrue();
+        Assertions.assertThat(title.and(edition).isCovered(indexes)).isTrue();
+        Assertions.assertThat(title.or(edition).isCovered(indexes)).isTrue();
+        Assertions.assertThat(Condition.eq(magazines.field("issn").orElseThrow(), "1").isCovered(indexes)).isFalse();
+        Assertions.assertThat(title.negate().isCovered(indexes)).isFalse();
+        Assertions.assertThat(title.and(b -> true).isCovered(indexes)).isFalse();
+        Assertions.assertThat(Condition.gt(magazines.field("title").orElseThrow(), "A").isCovered(indexes)).isFalse();
+
+        Condition book = Condition.eq(field("title"), "Effective Java");
+        Assertions.assertThat(book.isCovered(this.indexes)).isFalse();
+        Assertions.assertThat(Condition.gt(field("edition"), 1).isCovered(this.indexes)).isFalse();
+        Assertions.assertThat(book.and(Condition.eq(field("author"), "Joshua Bloch")).isCovered(this.indexes)).isFalse();
+    }
+
+    private FieldMetadata sample(String name) throws NoSuchFieldException {
+        Field field = Sample.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return FieldMetadata.of(field, 1);
+    }
+
+    private static final class Sample {
+
+        private final int number;
+
+        private final long total;
+
+        private Sample(int number, long total) {
+            this.number = number;
+            this.total = total;
+        }
+    }
+}
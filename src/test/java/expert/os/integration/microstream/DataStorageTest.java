@@ -15,18 +15,34 @@
 
 package expert.os.integration.microstream;
 
+import one.microstream.collections.lazy.LazyHashMap;
+import one.microstream.persistence.binary.one.microstream.collections.lazy.BinaryHandlerLazyHashMap;
 import one.microstream.persistence.types.Persister;
+import one.microstream.persistence.types.Storer;
+import one.microstream.storage.embedded.configuration.types.EmbeddedStorageConfiguration;
+import one.microstream.storage.embedded.types.EmbeddedStorageFoundation;
+import one.microstream.storage.embedded.types.EmbeddedStorageManager;
 import org.assertj.core.api.Assertions;
-import org.assertj.core.api.Condition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Year;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 class DataStorageTest {
@@ -41,7 +57,7 @@ class DataStorageTest {
     @BeforeEach
     public void setUp() {
         this.persister = Mockito.mock(Persister.class);
-        this.data = new DataStorage(new HashMap<>(), persister);
+        this.data = new DataStorage(new DataRoot(), persister);
     }
 
     @Test
@@ -60,8 +76,9 @@ class DataStorageTest {
                 .store(argumentCaptor.capture());
         Map<? extends Class<?>, Long> storedTypes = argumentCaptor.getAllValues().stream()
                 .collect(Collectors.groupingBy(Object::getClass, Collectors.counting()));
-        // We stored 3 times the entire map (initial 3 Put)
-        Assertions.assertThat(storedTypes.get(HashMap.class)).isEqualTo(3L);
+        // We stored once the partitions holder, creating the Integer partition, and twice the partition
+        Assertions.assertThat(storedTypes.get(HashMap.class)).isEqualTo(1L);
+        Assertions.assertThat(storedTypes.get(LazyHashMap.class)).isEqualTo(2L);
 
         // We should not use EagerStorer
         Mockito.verify(this.persister, Mockito.never())
@@ -88,9 +105,9 @@ class DataStorageTest {
                 .isNotNull()
                 .matches(p -> p.size() == 3);
 
-        Optional<MutableEntity> optional = this.data.get(two.getId());
+        Optional<MutableEntity> optional = this.data.get(MutableEntity.class, two.getId());
         Assertions.assertThat(optional).isNotEmpty().get()
-                .satisfies(new Condition<>(mu -> mu.getValue().equals(CHANGED_VALUE_TWO)
+                .satisfies(new org.assertj.core.api.Condition<>(mu -> mu.getValue().equals(CHANGED_VALUE_TWO)
                         , "Updated value not stored"));
 
         ArgumentCaptor<Object> argumentCaptor = ArgumentCaptor.forClass(Object.class);
@@ -99,8 +116,9 @@ class DataStorageTest {
                 .store(argumentCaptor.capture());
         Map<? extends Class<?>, Long> storedTypes = argumentCaptor.getAllValues().stream()
                 .collect(Collectors.groupingBy(Object::getClass, Collectors.counting()));
-        // We stored 3 times the entire map (initial 3 Put)
-        Assertions.assertThat(storedTypes.get(HashMap.class)).isEqualTo(3L);
+        // We stored 3 times a map (initial 3 Put): the partitions holder once and the partition twice
+        Assertions.assertThat(storedTypes.get(HashMap.class)).isEqualTo(1L);
+        Assertions.assertThat(storedTypes.get(LazyHashMap.class)).isEqualTo(2L);
         // And once the MutableEntity
         Assertions.assertThat(storedTypes.get(MutableEntity.class)).isEqualTo(1L);
 
@@ -132,9 +150,9 @@ class DataStorageTest {
                 .isNotNull()
                 .matches(p -> p.size() == 3);  // Still 3
 
-        Optional<MutableEntity> optional = this.data.get(two.getId());
+        Optional<MutableEntity> optional = this.data.get(MutableEntity.class, two.getId());
         Assertions.assertThat(optional).isNotEmpty().get()
-                .satisfies(new Condition<>(mu -> mu.getValue().equals(CHANGED_VALUE_TWO)
+                .satisfies(new org.assertj.core.api.Condition<>(mu -> mu.getValue().equals(CHANGED_VALUE_TWO)
                         , "Updated value not stored"));
 
         ArgumentCaptor<Object> argumentCaptor = ArgumentCaptor.forClass(Object.class);
@@ -143,8 +161,9 @@ class DataStorageTest {
                 .store(argumentCaptor.capture());
         Map<? extends Class<?>, Long> storedTypes = argumentCaptor.getAllValues().stream()
                 .collect(Collectors.groupingBy(Object::getClass, Collectors.counting()));
-        // We stored 3 times the entire map (initial 3 Put) and once for the put due to different instance and same id.
-        Assertions.assertThat(storedTypes.get(HashMap.class)).isEqualTo(4L);
+        // We stored 3 times a map (initial 3 Put) and once for the put due to different instance and same id.
+        Assertions.assertThat(storedTypes.get(HashMap.class)).isEqualTo(1L);
+        Assertions.assertThat(storedTypes.get(LazyHashMap.class)).isEqualTo(3L);
 
         // We should not use EagerStorer
         Mockito.verify(this.persister, Mockito.never())
@@ -154,13 +173,13 @@ class DataStorageTest {
     @Test
     public void shouldGet() {
         this.data.put("one", 1);
-        Optional<Object> one = this.data.get("one");
+        Optional<Object> one = this.data.get(Integer.class, "one");
         Assertions.assertThat(one)
                 .isPresent()
                 .get()
                 .isEqualTo(1);
 
-        Optional<Object> two = this.data.get("two");
+        Optional<Object> two = this.data.get(Integer.class, "two");
         Assertions.assertThat(two)
                 .isNotPresent();
     }
@@ -168,17 +187,17 @@ class DataStorageTest {
     @Test
     public void shouldRemove() {
         this.data.put("one", 1);
-        Optional<Object> one = this.data.get("one");
+        Optional<Object> one = this.data.get(Integer.class, "one");
         Assertions.assertThat(one)
                 .isPresent()
                 .get()
                 .isEqualTo(1);
 
-        this.data.remove("one");
+        this.data.remove(Integer.class, "one");
 
         Mockito.verify(this.persister, Mockito.times(2))
                 .store(ArgumentMatchers.<DataStorage>any());
-        Assertions.assertThat(this.data.get("one"))
+        Assertions.assertThat(this.data.get(Integer.class, "one"))
                 .isNotPresent();
         // We should not use EagerStorer
         Mockito.verify(this.persister, Mockito.never())
@@ -226,7 +245,7 @@ class DataStorageTest {
         this.data.put("two", 2);
         this.data.put("four", 4);
 
-        Assertions.assertThat(this.data.values())
+        Assertions.assertThat(this.data.values(Integer.class))
                 .hasSize(3)
                 .contains(1, 2, 4);
 
@@ -242,7 +261,7 @@ class DataStorageTest {
     public void shouldPutEntries() {
         List<Entry> entries = List.of(Entry.of("one", 1), Entry.of("two", 2), Entry.of("four", 4));
         this.data.put(entries);
-        Assertions.assertThat(this.data.values())
+        Assertions.assertThat(this.data.values(Integer.class))
                 .hasSize(3)
                 .contains(1, 2, 4);
         Mockito.verify(this.persister, Mockito.only())
@@ -262,7 +281,7 @@ class DataStorageTest {
 
         List<Entry> entries = List.of(Entry.of(one.getId(), one), Entry.of(two.getId(), two), Entry.of(four.getId(), four));
         this.data.put(entries);
-        Assertions.assertThat(this.data.values())
+        Assertions.assertThat(this.data.values(MutableEntity.class))
                 .hasSize(3)
                 .contains(one, two, four);
 
@@ -273,14 +292,20 @@ class DataStorageTest {
 
         entries = List.of(Entry.of(one.getId(), one), Entry.of(two.getId(), two));
         this.data.put(entries);
-        Assertions.assertThat(this.data.values())
+        Assertions.assertThat(this.data.values(MutableEntity.class))
                 .hasSize(3)  // Still 3
                 .contains(one, two, four);
 
-        Mockito.verify(this.persister, Mockito.times(2))  // We called twice put and each time called store(map)
+        Mockito.verify(this.persister)  // The first put creates the partition
                 .store(ArgumentMatchers.<DataStorage>any());
-        Mockito.verify(this.persister)  // For the updated instance
-                .storeAll(ArgumentMatchers.<Iterable<MutableEntity>>any());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<Object>> argumentCaptor = ArgumentCaptor.forClass(Iterable.class);
+        Mockito.verify(this.persister)  // The updated instance and the stripe on the same commit
+                .storeAll(argumentCaptor.capture());
+        Assertions.assertThat(argumentCaptor.getValue())
+                .hasSize(2)
+                .contains(two)
+                .anyMatch(Map.class::isInstance);
         // We should not use EagerStorer
         Mockito.verify(this.persister, Mockito.never())
                 .createEagerStorer();
@@ -290,9 +315,9 @@ class DataStorageTest {
     public void shouldRemoveMultipleIds() {
         List<Entry> entries = List.of(Entry.of("one", 1), Entry.of("two", 2), Entry.of("four", 4));
         this.data.put(entries);
-        this.data.remove(List.of("one", "two", "four"));
+        this.data.remove(Integer.class, List.of("one", "two", "four"));
 
-        Assertions.assertThat(this.data.values())
+        Assertions.assertThat(this.data.values(Integer.class))
                 .isEmpty();
         Mockito.verify(this.persister, Mockito.times(2))
                 .store(ArgumentMatchers.<DataStorage>any());
@@ -306,10 +331,969 @@ class DataStorageTest {
         List<Entry> entries = List.of(Entry.of("one", 1), Entry.of("two", 2), Entry.of("four", 4));
         this.data.put(entries);
         Predicate<Object> predicate = e -> e.equals(1);
-        Stream<Integer> values = this.data.values(predicate, Collections.emptyList(), 0, 0);
+        Stream<Integer> values = this.data.values(Integer.class, predicate, Collections.emptyList(), 0, 0);
         Assertions.assertThat(values)
                 .isNotEmpty()
                 .isNotNull().hasSize(1)
                 .contains(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldKeepTypesAtSeparatedPartitions() {
+        this.data.put("one", 1);
+        this.data.put("one", "one");
+        this.data.put(List.of(Entry.of("two", 2), Entry.of("two", "two")));
+
+        Assertions.assertThat(this.data.size()).isEqualTo(4);
+        Assertions.assertThat(this.data.size(Integer.class)).isEqualTo(2);
+        Assertions.assertThat(this.data.size(String.class)).isEqualTo(2);
+        Assertions.assertThat(this.data.get(Integer.class, "one")).contains(1);
+        Assertions.assertThat(this.data.get(String.class, "one")).contains("one");
+        Assertions.assertThat(this.data.values(Integer.class)).containsOnly(1, 2);
+
+        this.data.remove(Integer.class, "one");
+        Assertions.assertThat(this.data.get(String.class, "one")).contains("one");
+
+        this.data.clear(String.class);
+        Assertions.assertThat(this.data.values(String.class)).isEmpty();
+        Assertions.assertThat(this.data.values(Integer.class)).containsOnly(2);
+    }
+
+    @Test
+    public void shouldNotFindByTheSupertype() {
+        this.data.put("one", 1);
+        this.data.put("two", 2L);
+
+        Assertions.assertThat(this.data.<String, Number>get(Number.class, "one")).isEmpty();
+        Assertions.assertThat(this.data.<String, Object>get(Object.class, "two")).isEmpty();
+        Assertions.assertThat(this.data.values(Number.class)).isEmpty();
+        Assertions.assertThat(this.data.size(Number.class)).isZero();
+        Assertions.assertThat(this.data.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldMigrateSingleMapRoot() {
+        Map<Object, Object> legacy = new HashMap<>();
+        legacy.put("one", 1);
+        legacy.put("two", "two");
+        DataStorage storage = new DataStorage(DataRoot.of(legacy, 1), this.persister);
+
+        Assertions.assertThat(storage.size()).isEqualTo(2);
+        Assertions.assertThat(storage.get(Integer.class, "one")).contains(1);
+        Assertions.assertThat(storage.get(String.class, "two")).contains("two");
+        Assertions.assertThat(storage.get(Integer.class, "two")).isEmpty();
+    }
+
+    @Test
+    public void shouldReadWhileScanIsRunning() throws Exception {
+        this.data.put(List.of(Entry.of("one", 1), Entry.of("two", 2)));
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Predicate<Object> slow = e -> {
+            scanning.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException exp) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<Object>> scan = executor.submit(() ->
+                    this.data.values(Integer.class, slow, Collections.emptyList(), 0, 0).toList());
+            Assertions.assertThat(scanning.await(10, TimeUnit.SECONDS)).isTrue();
+
+            Future<Optional<Object>> find = executor.submit(() -> this.data.get(Integer.class, "one"));
+            Assertions.assertThat(find.get(10, TimeUnit.SECONDS)).contains(1);
+            Assertions.assertThat(scan.isDone()).isFalse();
+
+            release.countDown();
+            Assertions.assertThat(scan.get(10, TimeUnit.SECONDS)).hasSize(2);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldStoreOnlyTheStripeOfTheKey() {
+        DataStorage striped = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4));
+        striped.put("one", 1);
+        Mockito.clearInvocations(this.persister);
+
+        striped.put("two", 2);
+        striped.put(List.of(Entry.of("three", 3), Entry.of("four", 4)));
+
+        ArgumentCaptor<Object> argumentCaptor = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(this.persister, Mockito.atLeastOnce()).store(argumentCaptor.capture());
+        Assertions.assertThat(argumentCaptor.getAllValues()).allMatch(LazyHashMap.class::isInstance)
+                .hasSizeLessThanOrEqualTo(3);
+        Assertions.assertThat(striped.size(Integer.class)).isEqualTo(4);
+        Assertions.assertThat(striped.get(Integer.class, "three")).contains(3);
+        Assertions.assertThat(striped.values(Integer.class)).containsOnly(1, 2, 3, 4);
+
+        striped.remove(Integer.class, List.of("one", "three"));
+        Assertions.assertThat(striped.values(Integer.class)).containsOnly(2, 4);
+        striped.remove(Integer.class, e -> e.equals(2));
+        Assertions.assertThat(striped.values(Integer.class)).containsOnly(4);
+    }
+
+    @Test
+    public void shouldRestripeMigratedRoot() {
+        Map<Object, Object> legacy = new HashMap<>();
+        legacy.put("one", 1);
+        legacy.put("two", 2);
+        legacy.put("three", 3);
+        DataRoot root = DataRoot.of(legacy, 1);
+
+        Assertions.assertThat(root.restripe(1)).isFalse();
+        Assertions.assertThat(root.restripe(8)).isTrue();
+
+        Partition partition = root.find(Integer.class).orElseThrow();
+        Assertions.assertThat(partition.stripes()).hasSize(8);
+        Assertions.assertThat(partition.size()).isEqualTo(3);
+        Assertions.assertThat(partition.stripeOf("two")).containsEntry("two", 2);
+    }
+
+    @Test
+    public void shouldWriteConcurrentlyOnStripes() throws Exception {
+        DataStorage striped = new DataStorage(new DataRoot(), this.persister, new StorageSettings(8));
+        int writers = 8;
+        int entities = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                int offset = writer * entities;
+                futures.add(executor.submit(() -> {
+                    for (int index = offset; index < offset + entities; index++) {
+                        striped.put(Integer.toString(index), index);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertThat(striped.size(Integer.class)).isEqualTo(writers * entities);
+        Assertions.assertThat(striped.get(Integer.class, "1234")).contains(1234);
+    }
+
+    @Test
+    public void shouldGroupConcurrentWritesOnCommit() throws Exception {
+        Storer storer = Mockito.mock(Storer.class);
+        Mockito.when(this.persister.createStorer()).thenReturn(storer);
+        DataStorage grouped = new DataStorage(new DataRoot(), this.persister, new StorageSettings(8, 200L, 1000, 0, 0, 0, 0, 1000L));
+        try {
+            grouped.put("zero", 0);
+            Mockito.clearInvocations(storer);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int index = 1; index <= 8; index++) {
+                    int value = index;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        grouped.put(Integer.toString(value), value);
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            Assertions.assertThat(grouped.size(Integer.class)).isEqualTo(9);
+            // the writers start together, so they share commits: fewer commits than the 8 writes
+            Mockito.verify(storer, Mockito.atMost(7)).commit();
+            Mockito.verify(this.persister, Mockito.never()).store(ArgumentMatchers.any());
+        } finally {
+            grouped.close();
+        }
+    }
+
+    @Test
+    public void shouldGroupConcurrentWritesOnTheSameStripe() throws Exception {
+        Storer storer = Mockito.mock(Storer.class);
+        Mockito.when(this.persister.createStorer()).thenReturn(storer);
+        long window = 200L;
+        DataStorage grouped = new DataStorage(new DataRoot(), this.persister, new StorageSettings(1, window, 1000, 0, 0, 0, 0, 1000L));
+        try {
+            grouped.put("zero", 0);
+            Mockito.clearInvocations(storer);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int index = 1; index <= 8; index++) {
+                    int value = index;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        grouped.put(Integer.toString(value), value);
+                        return null;
+                    }));
+                }
+                long begin = System.nanoTime();
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+                Assertions.assertThat(elapsed).isLessThan(3 * window);
+            } finally {
+                executor.shutdownNow();
+            }
+            Assertions.assertThat(grouped.size(Integer.class)).isEqualTo(9);
+            Mockito.verify(storer, Mockito.atMost(2)).commit();
+        } finally {
+            grouped.close();
+        }
+    }
+
+    @Test
+    public void shouldNotStoreWhenRemoveMissingKeys() {
+        this.data.put("one", 1);
+        Mockito.clearInvocations(this.persister);
+
+        this.data.remove(Integer.class, "two");
+        this.data.remove(Integer.class, List.of("three", "four"));
+        this.data.remove(String.class, "one");
+
+        Mockito.verifyNoInteractions(this.persister);
+        Assertions.assertThat(this.data.get(Integer.class, "one")).contains(1);
+    }
+
+    @Test
+    public void shouldStoreOnlyChangedSegmentsOnRemove(@TempDir Path directory) {
+        long small = storedOnRemove(directory.resolve("small"), 2_000);
+        long large = storedOnRemove(directory.resolve("large"), 20_000);
+        Assertions.assertThat(small).isPositive();
+        Assertions.assertThat(large).isLessThan(2 * small);
+    }
+
+    /**
+     * Returns the bytes written to the storage by {@link DataStorage#remove(Class, Object)} of a single key, after
+     * checking that the removal of a missing key writes nothing
+     */
+    private long storedOnRemove(Path directory, int entities) {
+        EmbeddedStorageFoundation<?> foundation = EmbeddedStorageConfiguration.Builder()
+                .setStorageDirectory(directory.toString()).createEmbeddedStorageFoundation();
+        foundation.registerTypeHandler(new BinaryHandlerLazyHashMap());
+        EmbeddedStorageManager manager = foundation.createEmbeddedStorageManager().start();
+        try {
+            DataRoot root = new DataRoot();
+            manager.setRoot(root);
+            manager.storeRoot();
+            DataStorage storage = new DataStorage(root, manager);
+            storage.put(IntStream.range(0, entities).mapToObj(i -> Entry.of(i, Integer.toString(i))).toList());
+
+            long before = manager.createStorageStatistics().totalDataLength();
+            storage.remove(String.class, entities);
+            Assertions.assertThat(manager.createStorageStatistics().totalDataLength()).isEqualTo(before);
+
+            storage.remove(String.class, entities / 2);
+            Assertions.assertThat(storage.size(String.class)).isEqualTo(entities - 1);
+            return manager.createStorageStatistics().totalDataLength() - before;
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldReleaseSegmentsLoadedByScan(@TempDir Path directory) {
+        Assertions.assertThat(loadedAfterScan(directory.resolve("unlimited"), 0)).isGreaterThan(1_000);
+        Assertions.assertThat(loadedAfterScan(directory.resolve("budget"), 1_000)).isLessThanOrEqualTo(1_000);
+    }
+
+    private int loadedAfterScan(Path directory, int budget) {
+        EmbeddedStorageFoundation<?> foundation = EmbeddedStorageConfiguration.Builder()
+                .setStorageDirectory(directory.toString()).createEmbeddedStorageFoundation();
+        foundation.registerTypeHandler(new BinaryHandlerLazyHashMap());
+        EmbeddedStorageManager manager = foundation.createEmbeddedStorageManager().start();
+        DataRoot root = new DataRoot();
+        manager.setRoot(root);
+        manager.storeRoot();
+        new DataStorage(root, manager).put(IntStream.range(0, 10_000)
+                .mapToObj(i -> Entry.of(i, Integer.toString(i))).toList());
+        manager.shutdown();
+
+        foundation = EmbeddedStorageConfiguration.Builder()
+                .setStorageDirectory(directory.toString()).createEmbeddedStorageFoundation();
+        foundation.registerTypeHandler(new BinaryHandlerLazyHashMap());
+        manager = foundation.createEmbeddedStorageManager().start();
+        try {
+            root = (DataRoot) manager.root();
+            DataStorage storage = new DataStorage(root, manager, new StorageSettings(1, 0L, 1000, 0, budget, 0, 0, 1000L));
+            Assertions.assertThat(storage.<String>list(String.class, v -> ((String) v).endsWith("7"),
+                    Collections.emptyList(), 0, 0)).hasSize(1_000);
+
+            LazyHashMap<Object, Object> stripe = (LazyHashMap<Object, Object>) root.find(String.class)
+                    .orElseThrow().stripe(0);
+            int loaded = 0;
+            for (LazyHashMap<Object, Object>.Segment<?> segment : stripe.segments()) {
+                if (segment.isLoaded()) {
+                    loaded += segment.size();
+                }
+            }
+            return loaded;
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldBoundSegmentsLoadedDuringScan(@TempDir Path directory) {
+        EmbeddedStorageFoundation<?> foundation = EmbeddedStorageConfiguration.Builder()
+                .setStorageDirectory(directory.toString()).createEmbeddedStorageFoundation();
+        foundation.registerTypeHandler(new BinaryHandlerLazyHashMap());
+        EmbeddedStorageManager manager = foundation.createEmbeddedStorageManager().start();
+        DataRoot root = new DataRoot();
+        manager.setRoot(root);
+        manager.storeRoot();
+        new DataStorage(root, manager).put(IntStream.range(0, 10_000)
+                .mapToObj(i -> Entry.of(i, Integer.toString(i))).toList());
+        manager.shutdown();
+
+        foundation = EmbeddedStorageConfiguration.Builder()
+                .setStorageDirectory(directory.toString()).createEmbeddedStorageFoundation();
+        foundation.registerTypeHandler(new BinaryHandlerLazyHashMap());
+        EmbeddedStorageManager restarted = foundation.createEmbeddedStorageManager().start();
+        try {
+            DataRoot stored = (DataRoot) restarted.root();
+            LazyHashMap<Object, Object> stripe = (LazyHashMap<Object, Object>) stored.find(String.class)
+                    .orElseThrow().stripe(0);
+            // a budget of a single entity releases each segment before the scan loads the next one
+            DataStorage storage = new DataStorage(stored, restarted, new StorageSettings(1, 0L, 1000, 0, 1, 0, 0, 1000L));
+            AtomicInteger peak = new AtomicInteger();
+            Predicate<Object> predicate = v -> {
+                int loaded = 0;
+                for (LazyHashMap<Object, Object>.Segment<?> segment : stripe.segments()) {
+                    if (segment.isLoaded()) {
+                        loaded += segment.size();
+                    }
+                }
+                peak.accumulateAndGet(loaded, Math::max);
+                return ((String) v).endsWith("7");
+            };
+
+            Assertions.assertThat(storage.<String>list(String.class, predicate, Collections.emptyList(), 0, 0))
+                    .hasSize(1_000).doesNotHaveDuplicates();
+            Assertions.assertThat(peak.get()).isPositive().isLessThanOrEqualTo(stripe.getMaxSegmentSize());
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldReleaseSegmentsOfConcurrentScans(@TempDir Path directory) throws Exception {
+        EmbeddedStorageFoundation<?> foundation = EmbeddedStorageConfiguration.Builder()
+                .setStorageDirectory(directory.toString()).createEmbeddedStorageFoundation();
+        foundation.registerTypeHandler(new BinaryHandlerLazyHashMap());
+        EmbeddedStorageManager manager = foundation.createEmbeddedStorageManager().start();
+        DataRoot root = new DataRoot();
+        manager.setRoot(root);
+        manager.storeRoot();
+        new DataStorage(root, manager).put(IntStream.range(0, 10_000)
+                .mapToObj(i -> Entry.of(i, Integer.toString(i))).toList());
+        manager.shutdown();
+
+        foundation = EmbeddedStorageConfiguration.Builder()
+                .setStorageDirectory(directory.toString()).createEmbeddedStorageFoundation();
+        foundation.registerTypeHandler(new BinaryHandlerLazyHashMap());
+        EmbeddedStorageManager restarted = foundation.createEmbeddedStorageManager().start();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            DataRoot stored = (DataRoot) restarted.root();
+            DataStorage storage = new DataStorage(stored, restarted, new StorageSettings(1, 0L, 1000, 0, 1_000, 0, 0, 1000L));
+            for (int round = 0; round < 10; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<List<String>>> scans = new ArrayList<>();
+                for (int scan = 0; scan < 2; scan++) {
+                    scans.add(executor.submit(() -> {
+                        start.await();
+                        return storage.<String>list(String.class, v -> ((String) v).endsWith("7"),
+                                Collections.emptyList(), 0, 0);
+                    }));
+                }
+                start.countDown();
+                for (Future<List<String>> scan : scans) {
+                    Assertions.assertThat(scan.get(30, TimeUnit.SECONDS)).hasSize(1_000).doesNotContainNull();
+                }
+            }
+
+            LazyHashMap<Object, Object> stripe = (LazyHashMap<Object, Object>) stored.find(String.class)
+                    .orElseThrow().stripe(0);
+            int loaded = 0;
+            for (LazyHashMap<Object, Object>.Segment<?> segment : stripe.segments()) {
+                if (segment.isLoaded()) {
+                    loaded += segment.size();
+                }
+            }
+            Assertions.assertThat(loaded).isLessThanOrEqualTo(2_000);
+            Assertions.assertThat(storage.<Integer, String>get(String.class, 7)).contains("7");
+        } finally {
+            executor.shutdownNow();
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldUseIndexOnQuery() {
+        Entities entities = Entities.of(Set.of(Book.class));
+        DataStorage indexed = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4), entities);
+        List<Entry> books = IntStream.range(0, 100).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                .title(i % 10 == 0 ? "Effective Java" : "Clean Code").edition(i).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList();
+        indexed.put(books);
+        FieldMetadata title = EntityMetadata.of(Book.class).field("title").orElseThrow();
+        List<Object> tested = Collections.synchronizedList(new ArrayList<>());
+        Condition condition = Condition.eq(title, "Effective Java").and(b -> tested.add(b));
+
+        Assertions.assertThat(indexed.<Book>values(Book.class, condition, Collections.emptyList(), 0, 0))
+                .hasSize(10).allMatch(b -> b.title().equals("Effective Java"));
+        Assertions.assertThat(tested).hasSize(10);
+
+        indexed.remove(Book.class, Condition.eq(title, "Effective Java"));
+        Assertions.assertThat(indexed.size(Book.class)).isEqualTo(90);
+        Assertions.assertThat(indexed.values(Book.class, Condition.eq(title, "Effective Java"),
+                Collections.emptyList(), 0, 0)).isEmpty();
+    }
+
+    @Test
+    public void shouldGetKeysOfInOnId() {
+        DataStorage storage = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4),
+                Entities.of(Set.of(Car.class)));
+        storage.put(IntStream.range(0, 100).mapToObj(i -> Car.of(Integer.toString(i), "Ferrari", Year.of(2020)))
+                .map(c -> Entry.of(c.plate(), c)).toList());
+        FieldMetadata plate = EntityMetadata.of(Car.class).field("plate").orElseThrow();
+        List<Object> tested = Collections.synchronizedList(new ArrayList<>());
+        Condition condition = Condition.in(plate, List.of("7", "42", "404")).and(c -> tested.add(c));
+
+        Assertions.assertThat(storage.<Car>values(Car.class, condition, Collections.emptyList(), 0, 0))
+                .extracting(Car::plate).containsExactlyInAnyOrder("7", "42");
+        Assertions.assertThat(tested).hasSize(2);
+        Assertions.assertThat(storage.count(Car.class, Condition.in(plate, List.of("7", "42", "404")))).isEqualTo(2L);
+
+        storage.remove(Car.class, Condition.eq(plate, "7"));
+        Assertions.assertThat(storage.size(Car.class)).isEqualTo(99);
+        Assertions.assertThat(storage.get(Car.class, "7")).isEmpty();
+    }
+
+    @Test
+    public void shouldPlanKeyLookupOnId() {
+        DataStorage indexed = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4),
+                Entities.of(Set.of(Book.class)));
+        indexed.put(IntStream.range(0, 100).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .title(i % 10 == 0 ? "Effective Java" : "Clean Code").edition(i).author("Author " + i).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        EntityMetadata metadata = EntityMetadata.of(Book.class);
+        FieldMetadata isbn = metadata.field("isbn").orElseThrow();
+        FieldMetadata title = metadata.field("title").orElseThrow();
+        FieldMetadata edition = metadata.field("edition").orElseThrow();
+        FieldMetadata author = metadata.field("author").orElseThrow();
+        Condition byIsbn = Condition.in(isbn, List.of("10", "20", "21")).and(Condition.eq(author, "Author 20"));
+
+        QueryPlan plan = indexed.explain(Book.class, byIsbn, List.of(edition.comparator()), 0, 10);
+        Assertions.assertThat(plan.access()).isEqualTo(QueryPlan.Access.KEY);
+        Assertions.assertThat(plan.order()).isEqualTo(QueryPlan.Order.TOP);
+        Assertions.assertThat(plan.estimated()).isEqualTo(3);
+        Assertions.assertThat(plan.index()).isNull();
+        Assertions.assertThat(plan.explain()).isEqualTo("Book: KEY 3 candidates, order TOP, limit 10");
+        Assertions.assertThat(indexed.<Book>list(Book.class, byIsbn, List.of(edition.comparator()), 0, 10))
+                .extracting(Book::isbn).containsExactly("20");
+
+        QueryPlan index = indexed.explain(Book.class, Condition.eq(title, "Effective Java").and(byIsbn),
+                Collections.emptyList(), 0, 0);
+        Assertions.assertThat(index.access()).isEqualTo(QueryPlan.Access.INDEX);
+        Assertions.assertThat(index.estimated()).isEqualTo(2);
+
+        QueryPlan scan = indexed.explain(Book.class, Condition.eq(author, "Author 1"), List.of(edition.reversed()), 2, 3);
+        Assertions.assertThat(scan.access()).isEqualTo(QueryPlan.Access.SCAN);
+        Assertions.assertThat(scan.order()).isEqualTo(QueryPlan.Order.INDEX);
+        Assertions.assertThat(scan.index()).isEqualTo("edition");
+        Assertions.assertThat(scan.explain()).isEqualTo("Book: SCAN 100 candidates, order INDEX by edition, start 2, limit 3");
+        Assertions.assertThat(indexed.explain(Book.class, Condition.all(), List.of(author.comparator()), 0, 0).order())
+                .isEqualTo(QueryPlan.Order.SORT);
+        Assertions.assertThat(indexed.explain(Book.class, Condition.all(), Collections.emptyList(), 0, 0).order())
+                .isEqualTo(QueryPlan.Order.NONE);
+    }
+
+    @Test
+    public void shouldWalkSortedIndexOnlyForManyCandidates() {
+        Entities entities = Entities.of(Set.of(Book.class));
+        DataStorage indexed = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4), entities);
+        indexed.put(IntStream.range(0, 1_000).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .title(i % 250 == 0 ? "Rare" : i % 2 == 0 ? "Even" : "Odd").edition(i).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        FieldMetadata title = EntityMetadata.of(Book.class).field("title").orElseThrow();
+        FieldMetadata edition = EntityMetadata.of(Book.class).field("edition").orElseThrow();
+
+        QueryPlan rare = indexed.explain(Book.class, Condition.eq(title, "Rare"), List.of(edition.comparator()), 0, 10);
+        Assertions.assertThat(rare.access()).isEqualTo(QueryPlan.Access.INDEX);
+        Assertions.assertThat(rare.order()).isEqualTo(QueryPlan.Order.TOP);
+        Assertions.assertThat(indexed.explain(Book.class, Condition.eq(title, "Rare"), List.of(edition.comparator()), 0, 0)
+                .order()).isEqualTo(QueryPlan.Order.SORT);
+        Assertions.assertThat(indexed.<Book>list(Book.class, Condition.eq(title, "Rare"), List.of(edition.comparator()), 0, 10))
+                .extracting(Book::edition).containsExactly(0, 250, 500, 750);
+
+        QueryPlan common = indexed.explain(Book.class, Condition.eq(title, "Odd"), List.of(edition.comparator()), 0, 10);
+        Assertions.assertThat(common.order()).isEqualTo(QueryPlan.Order.INDEX);
+        Assertions.assertThat(indexed.<Book>list(Book.class, Condition.eq(title, "Odd"), List.of(edition.comparator()), 0, 3))
+                .extracting(Book::edition).containsExactly(1, 3, 5);
+    }
+
+    @Test
+    public void shouldAnalyzeQuery() {
+        this.data.put(IntStream.range(0, 50).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .title("Book " + i).edition(i % 5).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        FieldMetadata edition = EntityMetadata.of(Book.class).field("edition").orElseThrow();
+        FieldMetadata isbn = EntityMetadata.of(Book.class).field("isbn").orElseThrow();
+
+        QueryExplain explain = this.data.analyze(Book.class, Condition.eq(edition, 2), List.of(isbn.comparator()), 1, 0);
+        Assertions.assertThat(explain.plan().access()).isEqualTo(QueryPlan.Access.SCAN);
+        Assertions.assertThat(explain.plan().order()).isEqualTo(QueryPlan.Order.SORT);
+        Assertions.assertThat(explain.scanned()).isEqualTo(50L);
+        Assertions.assertThat(explain.matched()).isEqualTo(10L);
+        Assertions.assertThat(explain.returned()).isEqualTo(9L);
+        Assertions.assertThat(explain.stages().keySet()).containsExactly("plan", "read", "sort");
+        Assertions.assertThat(this.data.analyze(Animal.class, Condition.all(), Collections.emptyList(), 0, 0).scanned())
+                .isZero();
+    }
+
+    @Test
+    public void shouldStopScanAtFirstMatches() {
+        DataStorage storage = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4),
+                Entities.of(Set.of(Car.class)));
+        storage.put(IntStream.range(0, 100).mapToObj(i -> Car.of(Integer.toString(i), "Ferrari", Year.of(2020)))
+                .map(c -> Entry.of(c.plate(), c)).toList());
+        FieldMetadata plate = EntityMetadata.of(Car.class).field("plate").orElseThrow();
+        List<Object> tested = Collections.synchronizedList(new ArrayList<>());
+
+        Assertions.assertThat(storage.list(Car.class, Condition.of(c -> tested.add(c)), Collections.emptyList(), 0, 1))
+                .hasSize(1);
+        Assertions.assertThat(tested).hasSize(1);
+
+        tested.clear();
+        Assertions.assertThat(storage.list(Car.class, Condition.of(c -> tested.add(c)), Collections.emptyList(), 3, 2))
+                .hasSize(2).containsExactlyElementsOf(storage.list(Car.class, Condition.all(), Collections.emptyList(), 3, 2));
+        Assertions.assertThat(tested).hasSize(5);
+
+        tested.clear();
+        Condition keys = Condition.in(plate, List.of("1", "2", "3", "4")).and(c -> tested.add(c));
+        Assertions.assertThat(storage.list(Car.class, keys, Collections.emptyList(), 0, 2)).hasSize(2);
+        Assertions.assertThat(tested).hasSize(2);
+    }
+
+    @Test
+    public void shouldRebuildIndexOnStartup() {
+        DataRoot root = new DataRoot();
+        new DataStorage(root, this.persister).put(List.of(Entry.of("one", MutableEntity.of("one", "java")),
+                Entry.of("two", MutableEntity.of("two", "kotlin"))));
+
+        DataStorage indexed = new DataStorage(root, this.persister, StorageSettings.DEFAULT,
+                Entities.of(Set.of(MutableEntity.class)));
+        FieldMetadata value = EntityMetadata.of(MutableEntity.class).field("value").orElseThrow();
+        List<Object> tested = new ArrayList<>();
+        Condition condition = Condition.eq(value, "java").and(tested::add);
+
+        Assertions.assertThat(indexed.values(MutableEntity.class, condition, Collections.emptyList(), 0, 0))
+                .hasSize(1);
+        Assertions.assertThat(tested).hasSize(1);
+    }
+
+    @Test
+    public void shouldKeepIndexWhenEntityChangesInPlace() {
+        DataStorage indexed = new DataStorage(new DataRoot(), this.persister, StorageSettings.DEFAULT,
+                Entities.of(Set.of(MutableEntity.class)));
+        FieldMetadata value = EntityMetadata.of(MutableEntity.class).field("value").orElseThrow();
+        MutableEntity entity = MutableEntity.of("one", "java");
+        indexed.put(entity.getId(), entity);
+        entity.setValue("kotlin");
+        indexed.put(entity.getId(), entity);
+
+        Assertions.assertThat(indexed.values(MutableEntity.class, Condition.eq(value, "java"),
+                Collections.emptyList(), 0, 0)).isEmpty();
+        Assertions.assertThat(indexed.values(MutableEntity.class, Condition.eq(value, "kotlin"),
+                Collections.emptyList(), 0, 0)).containsExactly(entity);
+
+        indexed.remove(MutableEntity.class, entity.getId());
+        Assertions.assertThat(indexed.values(MutableEntity.class, Condition.eq(value, "kotlin"),
+                Collections.emptyList(), 0, 0)).isEmpty();
+    }
+
+    @Test
+    public void shouldReadInIndexOrderWithLimit() {
+        Entities entities = Entities.of(Set.of(Book.class));
+        DataStorage indexed = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4), entities);
+        indexed.put(IntStream.range(0, 100).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .title("Book " + i).edition(i / 2).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        FieldMetadata edition = EntityMetadata.of(Book.class).field("edition").orElseThrow();
+        FieldMetadata isbn = EntityMetadata.of(Book.class).field("isbn").orElseThrow();
+        List<Object> tested = Collections.synchronizedList(new ArrayList<>());
+        Condition condition = Condition.gte(edition, 10).and(b -> tested.add(b));
+
+        List<Book> books = indexed.<Book>values(Book.class, condition,
+                List.of(edition.reversed(), isbn.reversed()), 2, 3).toList();
+
+        Assertions.assertThat(books).extracting(Book::isbn).containsExactly("97", "96", "95");
+        Assertions.assertThat(tested).hasSizeLessThanOrEqualTo(6);
+
+        List<Book> ascending = indexed.<Book>values(Book.class, Condition.lt(edition, 3),
+                List.of(edition.comparator(), isbn.comparator()), 0, 0).toList();
+        Assertions.assertThat(ascending).extracting(Book::isbn).containsExactly("0", "1", "2", "3", "4", "5");
+    }
+
+    @Test
+    public void shouldSortWhenIndexDoesNotCoverNulls() {
+        Entities entities = Entities.of(Set.of(Book.class));
+        DataStorage indexed = new DataStorage(new DataRoot(), this.persister, StorageSettings.DEFAULT, entities);
+        indexed.put(List.of(Entry.of("1", Book.builder().isbn("1").edition(2).build()),
+                Entry.of("2", Book.builder().isbn("2").edition(1).build()),
+                Entry.of("3", Book.builder().isbn("3").build())));
+        FieldMetadata edition = EntityMetadata.of(Book.class).field("edition").orElseThrow();
+
+        Assertions.assertThat(indexed.<Book>values(Book.class, Condition.gte(edition, 1),
+                List.of(edition.comparator()), 0, 1)).extracting(Book::isbn).containsExactly("2");
+    }
+
+    @Test
+    public void shouldReturnUnmodifiablePagedList() {
+        this.data.put(IntStream.range(0, 10).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .edition(i).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        FieldMetadata edition = EntityMetadata.of(Book.class).field("edition").orElseThrow();
+
+        List<Book> books = this.data.list(Book.class, b -> true, List.of(edition.reversed()), 2, 3);
+
+        Assertions.assertThat(books).extracting(Book::edition).containsExactly(7, 6, 5);
+        org.junit.jupiter.api.Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> books.add(Book.builder().isbn("11").build()));
+        Assertions.assertThat(this.data.<Book>list(Book.class, b -> true, Collections.emptyList(), 20, 3))
+                .isEmpty();
+        Assertions.assertThat(this.data.<Book>list(Animal.class, b -> true, Collections.emptyList(), 0, 0))
+                .isEmpty();
+    }
+
+    @Test
+    public void shouldSelectTopWithLimit() {
+        this.data.put(IntStream.range(0, 100).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .edition(i % 10).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        FieldMetadata edition = EntityMetadata.of(Book.class).field("edition").orElseThrow();
+        FieldMetadata isbn = EntityMetadata.of(Book.class).field("isbn").orElseThrow();
+        List<Comparator<?>> sorts = List.of(edition.reversed(), isbn.comparator());
+
+        List<Book> page = this.data.list(Book.class, b -> true, sorts, 5, 10);
+        List<Book> all = this.data.list(Book.class, b -> true, sorts, 0, 0);
+
+        Assertions.assertThat(page).containsExactlyElementsOf(all.subList(5, 15));
+    }
+
+    @Test
+    public void shouldScanInParallel() {
+        DataStorage parallel = new DataStorage(new DataRoot(), this.persister, new StorageSettings(2, 0L, 1000, 10, 0, 0, 0, 1000L));
+        List<Entry> books = IntStream.range(0, 1000).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .edition(i).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList();
+        parallel.put(books);
+        this.data.put(books);
+        Predicate<Object> even = b -> ((Book) b).edition() % 2 == 0;
+
+        Assertions.assertThat(parallel.<Book>list(Book.class, even, Collections.emptyList(), 0, 0))
+                .hasSize(500).allMatch(b -> b.edition() % 2 == 0);
+        FieldMetadata edition = EntityMetadata.of(Book.class).field("edition").orElseThrow();
+        Assertions.assertThat(parallel.<Book>list(Book.class, even, List.of(edition.reversed()), 10, 5))
+                .containsExactlyElementsOf(this.data.list(Book.class, even, List.of(edition.reversed()), 10, 5));
+
+        parallel.remove(Book.class, even);
+        Assertions.assertThat(parallel.<Book>values(Book.class)).hasSize(500).allMatch(b -> b.edition() % 2 == 1);
+    }
+
+    @Test
+    public void shouldInvalidateCacheOnWrite() {
+        Entities entities = Entities.of(Set.of(Book.class));
+        DataStorage cached = new DataStorage(new DataRoot(), this.persister,
+                new StorageSettings(2, 0L, 1000, 0, 0, 100, 0, 1000L), entities);
+        cached.put(List.of(Entry.of("1", Book.builder().isbn("1").title("Clean Code").build()),
+                Entry.of("2", Book.builder().isbn("2").title("Effective Java").build())));
+        FieldMetadata title = EntityMetadata.of(Book.class).field("title").orElseThrow();
+
+        Assertions.assertThat(cached.<Book>list(Book.class, Condition.eq(title, "Clean Code"),
+                Collections.emptyList(), 0, 0)).extracting(Book::isbn).containsExactly("1");
+        Assertions.assertThat(cached.<Book>list(Book.class, Condition.eq(title, "Clean Code"),
+                Collections.emptyList(), 0, 0)).extracting(Book::isbn).containsExactly("1");
+        Assertions.assertThat(cached.cache().hits()).isEqualTo(1L);
+
+        cached.put(List.of(Entry.of("3", Book.builder().isbn("3").title("Clean Code").build())));
+        Assertions.assertThat(cached.<Book>list(Book.class, Condition.eq(title, "Clean Code"),
+                Collections.emptyList(), 0, 0)).extracting(Book::isbn).containsExactlyInAnyOrder("1", "3");
+
+        cached.remove(Book.class, "1");
+        Assertions.assertThat(cached.<Book>list(Book.class, Condition.eq(title, "Clean Code"),
+                Collections.emptyList(), 0, 0)).extracting(Book::isbn).containsExactly("3");
+
+        cached.clear(Book.class);
+        Assertions.assertThat(cached.<Book>list(Book.class, Condition.eq(title, "Clean Code"),
+                Collections.emptyList(), 0, 0)).isEmpty();
+        Assertions.assertThat(cached.cache().hits()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldCountOnWrite() {
+        DataRoot root = new DataRoot();
+        DataStorage counted = new DataStorage(root, this.persister, new StorageSettings(4));
+        counted.put(IntStream.range(0, 10).mapToObj(i -> Entry.of(i, Integer.toString(i))).toList());
+        counted.put(1, "one");
+        counted.put("car", Car.of("BMW", "X1", Year.of(2020)));
+        counted.put(List.of(Entry.of(11, "eleven"), Entry.of(2, "two")));
+
+        Assertions.assertThat(counted.size(String.class)).isEqualTo(11);
+        Assertions.assertThat(counted.size()).isEqualTo(12);
+
+        counted.remove(String.class, 3);
+        counted.remove(String.class, 42);
+        counted.remove(String.class, v -> ((String) v).startsWith("e"));
+        Assertions.assertThat(counted.size(String.class)).isEqualTo(9);
+        Assertions.assertThat(new DataStorage(root, this.persister, new StorageSettings(4)).size(String.class))
+                .isEqualTo(9);
+
+        counted.clear(Car.class);
+        Assertions.assertThat(counted.size(Car.class)).isZero();
+        Assertions.assertThat(counted.size()).isEqualTo(9);
+        counted.clear();
+        Assertions.assertThat(counted.size()).isZero();
+    }
+
+    @Test
+    public void shouldCountMatches() {
+        Entities entities = Entities.of(Set.of(Book.class));
+        DataStorage indexed = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4), entities);
+        indexed.put(IntStream.range(0, 100).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .title(i % 10 == 0 ? "Effective Java" : "Clean Code").edition(i).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        FieldMetadata title = EntityMetadata.of(Book.class).field("title").orElseThrow();
+
+        Assertions.assertThat(indexed.count(Book.class, Condition.all())).isEqualTo(100L);
+        Assertions.assertThat(indexed.count(Book.class, Condition.eq(title, "Effective Java"))).isEqualTo(10L);
+        Assertions.assertThat(indexed.count(Book.class, b -> ((Book) b).edition() < 5)).isEqualTo(5L);
+        Assertions.assertThat(indexed.count(Car.class, Condition.all())).isZero();
+    }
+
+    @Test
+    public void shouldCountCoveredConditionFromIndexes() {
+        Entities entities = Entities.of(Set.of(Book.class));
+        DataStorage indexed = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4), entities);
+        indexed.put(IntStream.range(0, 100).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .title(i % 10 == 0 ? "Effective Java" : "Clean Code").edition(i).author("Author " + i % 3).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        EntityMetadata metadata = EntityMetadata.of(Book.class);
+        FieldMetadata title = metadata.field("title").orElseThrow();
+        FieldMetadata edition = metadata.field("edition").orElseThrow();
+        FieldMetadata author = metadata.field("author").orElseThrow();
+        FieldMetadata isbn = metadata.field("isbn").orElseThrow();
+
+        Assertions.assertThat(indexed.count(Book.class, Condition.eq(title, "Effective Java").and(Condition.lt(edition, 50))))
+                .isEqualTo(5L);
+        Assertions.assertThat(indexed.count(Book.class, Condition.eq(title, "Effective Java").or(Condition.gte(edition, 95))))
+                .isEqualTo(15L);
+        Assertions.assertThat(indexed.count(Book.class, Condition.eq(title, "Effective Java").and(Condition.eq(author, "Author 0"))))
+                .isEqualTo(4L);
+        Assertions.assertThat(indexed.count(Book.class, Condition.in(isbn, List.of("1", "2", "404")))).isEqualTo(2L);
+    }
+
+    @Test
+    public void shouldCountAsFindAfterChangeInPlace() {
+        Entities entities = Entities.of(Set.of(MutableEntity.class));
+        DataStorage indexed = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4), entities);
+        List<MutableEntity> values = IntStream.range(0, 10).mapToObj(i -> MutableEntity.of(Integer.toString(i), "original"))
+                .toList();
+        indexed.put(values.stream().map(e -> Entry.of(e.getId(), e)).toList());
+        FieldMetadata value = EntityMetadata.of(MutableEntity.class).field("value").orElseThrow();
+        Condition original = Condition.eq(value, "original");
+
+        values.get(0).setValue("changed");
+        values.get(1).setValue("changed");
+
+        Assertions.assertThat(indexed.count(MutableEntity.class, original))
+                .isEqualTo(indexed.list(MutableEntity.class, original, Collections.emptyList(), 0, 0).size())
+                .isEqualTo(8L);
+        Assertions.assertThat(indexed.page(MutableEntity.class, original, Collections.emptyList(), 0, 5).total())
+                .isEqualTo(8L);
+    }
+
+    @Test
+    public void shouldCountCoveredConditionOfFinalFieldsFromIndexes() {
+        Entities entities = Entities.of(Set.of(Magazine.class));
+        DataStorage indexed = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4), entities);
+        indexed.put(IntStream.range(0, 100).mapToObj(i -> new Magazine(Integer.toString(i),
+                        i % 10 == 0 ? "Java Magazine" : "Other", i))
+                .map(m -> Entry.of(m.issn(), m)).toList());
+        EntityMetadata metadata = EntityMetadata.of(Magazine.class);
+        FieldMetadata title = metadata.field("title").orElseThrow();
+        FieldMetadata edition = metadata.field("edition").orElseThrow();
+
+        Assertions.assertThat(indexed.count(Magazine.class, Condition.eq(title, "Java Magazine").and(Condition.lt(edition, 50))))
+                .isEqualTo(5L);
+        Assertions.assertThat(indexed.count(Magazine.class, Condition.eq(title, "Java Magazine").or(Condition.gte(edition, 95))))
+                .isEqualTo(15L);
+    }
+
+    @Test
+    public void shouldRemoveInBatches() {
+        DataStorage storage = new DataStorage(new DataRoot(), this.persister, new StorageSettings(2, 0L, 1000, 0, 0, 0, 10, 1000L),
+                Entities.of(Set.of(Book.class)));
+        storage.put(IntStream.range(0, 100).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .title("Book " + i).edition(i).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        FieldMetadata edition = EntityMetadata.of(Book.class).field("edition").orElseThrow();
+        Mockito.clearInvocations(this.persister);
+
+        Assertions.assertThat(storage.remove(Book.class, b -> ((Book) b).edition() < 45)).isEqualTo(45L);
+        Mockito.verify(this.persister, Mockito.atLeast(5)).store(ArgumentMatchers.any(LazyHashMap.class));
+        Assertions.assertThat(storage.size(Book.class)).isEqualTo(55);
+        Assertions.assertThat(storage.count(Book.class, Condition.lt(edition, 45))).isZero();
+
+        Assertions.assertThat(storage.remove(Book.class, Condition.gte(edition, 90))).isEqualTo(10L);
+        Assertions.assertThat(storage.remove(Car.class, Condition.all())).isZero();
+        Assertions.assertThat(storage.size(Book.class)).isEqualTo(45);
+    }
+
+    @Test
+    public void shouldRemoveEachBatchBeforeScanningTheRestOfTheStripe() {
+        DataStorage storage = new DataStorage(new DataRoot(), this.persister, new StorageSettings(1, 0L, 1000, 0, 0, 0, 10, 1000L),
+                Entities.of(Set.of(Book.class)));
+        storage.put(IntStream.range(0, 100).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .title("Book " + i).edition(i).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        AtomicInteger tested = new AtomicInteger();
+        List<Integer> testedOnCommit = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            testedOnCommit.add(tested.get());
+            return 0L;
+        }).when(this.persister).store(ArgumentMatchers.any(LazyHashMap.class));
+
+        Assertions.assertThat(storage.remove(Book.class, b -> {
+            tested.incrementAndGet();
+            return ((Book) b).edition() % 2 == 0;
+        })).isEqualTo(50L);
+        Assertions.assertThat(testedOnCommit).hasSize(5).isSorted();
+        Assertions.assertThat(testedOnCommit.get(0)).isLessThan(100);
+        Assertions.assertThat(storage.size(Book.class)).isEqualTo(50);
+    }
+
+    @Test
+    public void shouldSkipExpiredEntries() throws InterruptedException {
+        DataStorage storage = new DataStorage(new DataRoot(), this.persister,
+                new StorageSettings(2, 0L, 1000, 0, 0, 10, 0, 60_000L), Entities.of(Set.of(Book.class)));
+        FieldMetadata title = EntityMetadata.of(Book.class).field("title").orElseThrow();
+        storage.put(IntStream.range(0, 4).mapToObj(i -> Book.builder().isbn(Integer.toString(i))
+                        .title("Effective Java").edition(i).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList(), Duration.ofMillis(100L));
+        storage.put("4", Book.builder().isbn("4").title("Effective Java").edition(4).build());
+        storage.put("0", Book.builder().isbn("0").title("Effective Java").edition(0).build());
+        Assertions.assertThat(storage.size(Book.class)).isEqualTo(5);
+
+        Thread.sleep(200L);
+
+        Assertions.assertThat(storage.<String, Book>get(Book.class, "1")).isEmpty();
+        Assertions.assertThat(storage.<String, Book>get(Book.class, "0")).isPresent();
+        Assertions.assertThat(storage.size(Book.class)).isEqualTo(2);
+        Assertions.assertThat(storage.size()).isEqualTo(2);
+        Assertions.assertThat(storage.count(Book.class, Condition.eq(title, "Effective Java"))).isEqualTo(2L);
+        Assertions.assertThat(storage.<Book>list(Book.class, Condition.all(), Collections.emptyList(), 0, 0))
+                .extracting(Book::isbn).containsExactlyInAnyOrder("0", "4");
+        Assertions.assertThat(storage.<Book>list(Book.class, Condition.all(), Collections.emptyList(), 0, 0)).hasSize(2);
+        Assertions.assertThat(storage.remove(Book.class, Condition.all())).isEqualTo(2L);
+        Assertions.assertThat(storage.cache().hits()).isZero();
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+                () -> storage.put("5", Book.builder().isbn("5").build(), Duration.ZERO));
+    }
+
+    @Test
+    public void shouldReapExpiredEntries() throws InterruptedException {
+        DataRoot root = new DataRoot();
+        DataStorage storage = new DataStorage(root, this.persister,
+                new StorageSettings(2, 0L, 1000, 0, 0, 0, 3, 60_000L), Entities.of(Set.of(Book.class)));
+        storage.put(IntStream.range(0, 10).mapToObj(i -> Book.builder().isbn(Integer.toString(i)).edition(i).build())
+                .map(b -> Entry.of(b.isbn(), b)).toList(), Duration.ofMillis(50L));
+        storage.put("10", Book.builder().isbn("10").edition(10).build());
+        storage.close();
+
+        DataStorage restarted = new DataStorage(root, this.persister,
+                new StorageSettings(2, 0L, 1000, 0, 0, 0, 3, 10L), Entities.of(Set.of(Book.class)));
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (root.find(Book.class).orElseThrow().size() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20L);
+        }
+        restarted.close();
+
+        Partition partition = root.find(Book.class).orElseThrow();
+        Assertions.assertThat(partition.size()).isEqualTo(1);
+        Assertions.assertThat(restarted.size(Book.class)).isEqualTo(1);
+        Assertions.assertThat(IntStream.range(0, partition.stripes().size()).map(i -> partition.expirations(i).size()).sum())
+                .isZero();
+    }
+
+    @Test
+    public void shouldReapExpiredEntriesOfTypesWithoutEntityOnRestart() throws InterruptedException {
+        DataRoot root = new DataRoot();
+        DataStorage storage = new DataStorage(root, this.persister, new StorageSettings(2, 0L, 1000, 0, 0, 0, 3, 60_000L));
+        storage.put(IntStream.range(0, 10).mapToObj(i -> Entry.of(Integer.toString(i), Year.of(2000 + i))).toList(),
+                Duration.ofMillis(50L));
+        storage.put("10", Year.of(2010));
+        storage.close();
+
+        DataStorage restarted = new DataStorage(root, this.persister, new StorageSettings(2, 0L, 1000, 0, 0, 0, 3, 10L));
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (root.find(Year.class).orElseThrow().size() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20L);
+        }
+        restarted.close();
+
+        Partition partition = root.find(Year.class).orElseThrow();
+        Assertions.assertThat(partition.size()).isEqualTo(1);
+        Assertions.assertThat(restarted.<String, Year>get(Year.class, "10")).contains(Year.of(2010));
+        Assertions.assertThat(IntStream.range(0, partition.stripes().size()).map(i -> partition.expirations(i).size()).sum())
+                .isZero();
+    }
+
+    @Test
+    public void shouldCountTotalOfPage() {
+        DataStorage storage = new DataStorage(new DataRoot(), this.persister, new StorageSettings(4),
+                Entities.of(Set.of(Book.class)));
+        storage.put(IntStream.range(0, 25).mapToObj(i -> {
+                    BookBuilder builder = Book.builder().isbn(Integer.toString(i)).edition(i);
+                    return i % 5 == 0 ? builder.active().build() : builder.build();
+                })
+                .map(b -> Entry.of(b.isbn(), b)).toList());
+        FieldMetadata edition = EntityMetadata.of(Book.class).field("edition").orElseThrow();
+        FieldMetadata active = EntityMetadata.of(Book.class).field("active").orElseThrow();
+        Condition inactive = Condition.eq(active, false);
+
+        PageResult<Book> all = storage.page(Book.class, Condition.all(), List.of(edition.comparator()), 20, 10);
+        Assertions.assertThat(all.total()).isEqualTo(25L);
+        Assertions.assertThat(all.entities()).extracting(Book::edition).containsExactly(20, 21, 22, 23, 24);
+
+        PageResult<Book> unsorted = storage.page(Book.class, inactive, Collections.emptyList(), 5, 5);
+        Assertions.assertThat(unsorted.total()).isEqualTo(20L);
+        Assertions.assertThat(unsorted.entities()).hasSize(5).noneMatch(Book::active);
+
+        PageResult<Book> top = storage.page(Book.class, inactive, List.of(edition.reversed()), 0, 3);
+        Assertions.assertThat(top.total()).isEqualTo(20L);
+        Assertions.assertThat(top.entities()).extracting(Book::edition).containsExactly(24, 23, 22);
+
+        PageResult<Book> sorted = storage.page(Book.class, inactive, List.of(edition.comparator()), 18, 0);
+        Assertions.assertThat(sorted.total()).isEqualTo(20L);
+        Assertions.assertThat(sorted.entities()).extracting(Book::edition).containsExactly(23, 24);
+
+        Assertions.assertThat(storage.page(Car.class, inactive, Collections.emptyList(), 0, 10).total()).isZero();
+    }
+}
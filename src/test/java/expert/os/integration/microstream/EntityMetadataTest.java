@@ -23,7 +23,6 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Year;
 import java.util.Optional;
-import java.util.function.Predicate;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -98,14 +97,6 @@ class EntityMetadataTest {
         assertThat(name).isNotPresent();
     }
 
-    @Test
-    public void shouldReturnIsInstance() {
-        EntityMetadata metadata = EntityMetadata.of(Book.class);
-        Predicate<Object> instance = metadata.isInstance();
-        assertThat(instance.test(new Car())).isFalse();
-        assertThat(instance.test(Book.builder().build())).isTrue();
-    }
-
     @Test
     public void shouldCreateEntry() {
         EntityMetadata metadata = EntityMetadata.of(Book.class);
@@ -134,4 +125,17 @@ class EntityMetadataTest {
         @Column
         private Year year;
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldFindFieldsByNameAndOrdinal() {
+        EntityMetadata metadata = EntityMetadata.of(Book.class);
+
+        assertThat(metadata.field("isbn")).hasValue(metadata.id());
+        assertThat(metadata.id().ordinal()).isZero();
+        for (FieldMetadata field : metadata.fields()) {
+            assertThat(metadata.field(field.name())).hasValue(field);
+        }
+        assertThat(metadata.fields()).extracting(FieldMetadata::ordinal).containsExactly(1, 2, 3, 4, 5);
+        assertThat(metadata.field("unknown")).isEmpty();
+    }
+}
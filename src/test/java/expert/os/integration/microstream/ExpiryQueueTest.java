@@ -0,0 +1,112 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class ExpiryQueueTest {
+
+    private ExpiryQueue queue;
+
+    @BeforeEach
+    public void setUp() {
+        this.queue = new ExpiryQueue(60_000L, () -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.queue.close();
+    }
+
+    @Test
+    public void shouldCountExpired() {
+        this.queue.add(Book.class, "1", 10L);
+        this.queue.add(Book.class, "2", 20L);
+        this.queue.add(Car.class, "1", 10L);
+
+        Assertions.assertThat(this.queue.expired(Book.class, 5L)).isZero();
+        Assertions.assertThat(this.queue.expired(Book.class, 10L)).isEqualTo(1L);
+        Assertions.assertThat(this.queue.expired(Book.class, 30L)).isEqualTo(2L);
+        Assertions.assertThat(this.queue.expired(30L)).isEqualTo(3L);
+        Assertions.assertThat(this.queue.expired(Person.class, 30L)).isZero();
+    }
+
+    @Test
+    public void shouldReplaceTheExpirationOfTheKey() {
+        this.queue.add(Book.class, "1", 10L);
+        Assertions.assertThat(this.queue.expired(Book.class, 15L)).isEqualTo(1L);
+
+        this.queue.add(Book.class, "1", 100L);
+
+        Assertions.assertThat(this.queue.expired(Book.class, 15L)).isZero();
+        Assertions.assertThat(this.queue.due(200L, 10)).extracting(ExpiryQueue.Expiration::deadline)
+                .containsExactly(100L);
+    }
+
+    @Test
+    public void shouldRemoveTheExpirationOfTheKey() {
+        this.queue.add(Book.class, "1", 10L);
+        this.queue.add(Book.class, "2", 100L);
+        Assertions.assertThat(this.queue.expired(Book.class, 15L)).isEqualTo(1L);
+
+        this.queue.remove(Book.class, "1");
+        this.queue.remove(Book.class, "2");
+        this.queue.remove(Book.class, "3");
+
+        Assertions.assertThat(this.queue.expired(Book.class, 200L)).isZero();
+        Assertions.assertThat(this.queue.due(200L, 10)).isEmpty();
+    }
+
+    @Test
+    public void shouldKeepDueUntilRemoved() {
+        this.queue.add(Book.class, "1", 10L);
+        this.queue.add(Book.class, "2", 20L);
+        this.queue.add(Book.class, "3", 30L);
+
+        List<ExpiryQueue.Expiration> due = this.queue.due(25L, 10);
+        Assertions.assertThat(due).extracting(ExpiryQueue.Expiration::key).containsExactly("1", "2");
+        Assertions.assertThat(this.queue.due(25L, 1)).extracting(ExpiryQueue.Expiration::key).containsExactly("1");
+
+        this.queue.add(Book.class, "2", 40L);
+        this.queue.remove(due);
+
+        Assertions.assertThat(this.queue.expired(Book.class, 25L)).isZero();
+        Assertions.assertThat(this.queue.due(50L, 10)).extracting(ExpiryQueue.Expiration::key).containsExactly("3", "2");
+    }
+
+    @Test
+    public void shouldClear() {
+        this.queue.add(Book.class, "1", 10L);
+        this.queue.add(Car.class, "1", 10L);
+        Assertions.assertThat(this.queue.contains(Book.class)).isTrue();
+
+        this.queue.clear(Book.class);
+
+        Assertions.assertThat(this.queue.contains(Book.class)).isFalse();
+        Assertions.assertThat(this.queue.expired(20L)).isEqualTo(1L);
+
+        this.queue.clear();
+
+        Assertions.assertThat(this.queue.expired(20L)).isZero();
+        Assertions.assertThat(this.queue.contains(Car.class)).isFalse();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import one.microstream.persistence.types.Persister;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExplainerTest {
+
+    private MicrostreamTemplate template;
+
+    private Explainer explainer;
+
+    @BeforeEach
+    public void setUp() {
+        Entities entities = Entities.of(Set.of(Book.class));
+        DataStorage data = new DataStorage(new DataRoot(), Mockito.mock(Persister.class), StorageSettings.DEFAULT, entities);
+        this.template = new MicrostreamTemplate(data, entities);
+        this.explainer = new Explainer(this.template);
+        this.template.insert(List.of(Book.builder().isbn("1").title("Effective Java").edition(1).build(),
+                Book.builder().isbn("2").title("Effective Java").edition(2).build(),
+                Book.builder().isbn("3").title("Clean Code").edition(1).build()));
+    }
+
+    @Test
+    public void shouldExplainWithoutReading() throws NoSuchMethodException {
+        QueryPlan select = this.explainer.explain(this.template.select(Book.class).where("title").eq("Clean Code"));
+        assertThat(select.access()).isEqualTo(QueryPlan.Access.INDEX);
+        assertThat(select.estimated()).isEqualTo(1L);
+
+        QueryPlan method = this.explainer.explain(Book.class, Library.class.getMethod("findByTitle", String.class),
+                "Effective Java");
+        assertThat(method.explain()).isEqualTo("Book: INDEX 2 candidates, order NONE");
+    }
+
+    @Test
+    public void shouldAnalyzeTheRun() throws NoSuchMethodException {
+        QueryExplain select = this.explainer.analyze(this.template.select(Book.class).where("edition").eq(1)
+                .and("title").eq("Clean Code"));
+        assertThat(select.plan().access()).isEqualTo(QueryPlan.Access.INDEX);
+        assertThat(select.scanned()).isEqualTo(1L);
+        assertThat(select.matched()).isEqualTo(1L);
+        assertThat(select.returned()).isEqualTo(1L);
+
+        QueryExplain method = this.explainer.analyze(Book.class, Library.class.getMethod("findByTitle", String.class),
+                "Effective Java");
+        assertThat(method.scanned()).isEqualTo(2L);
+        assertThat(method.returned()).isEqualTo(2L);
+    }
+
+    @Test
+    public void shouldReturnTheCacheStats() {
+        assertThat(this.explainer.cache()).isEqualTo(new CacheStats(0L, 0L, 0));
+
+        Entities entities = Entities.of(Set.of(Book.class));
+        DataStorage data = new DataStorage(new DataRoot(), Mockito.mock(Persister.class),
+                new StorageSettings(1, 0L, 1000, 0, 0, 10, 0, 1000L), entities);
+        MicrostreamTemplate cached = new MicrostreamTemplate(data, entities);
+        cached.insert(Book.builder().isbn("1").title("Effective Java").edition(1).build());
+        Explainer explainer = new Explainer(cached);
+        for (int query = 0; query < 3; query++) {
+            assertThat(cached.select(Book.class).where("title").eq("Effective Java").<Book>result()).hasSize(1);
+        }
+
+        CacheStats stats = explainer.cache();
+        assertThat(stats.hits()).isEqualTo(2L);
+        assertThat(stats.misses()).isEqualTo(1L);
+        assertThat(stats.size()).isEqualTo(1);
+        assertThat(stats.hitRatio()).isEqualTo(2D / 3);
+    }
+
+    @Test
+    public void shouldReturnErrorWhenQueryIsInvalid() {
+        Assertions.assertThrows(NullPointerException.class, () -> this.explainer.explain(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.explainer.analyze(Book.class,
+                Library.class.getMethod("findAll")));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.reflect.Field;
+
+class FieldAccessorTest {
+
+    private final Sample sample = new Sample(42, 7L, true, "Java");
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void shouldReadValues(boolean methodHandle) throws NoSuchFieldException {
+        Assertions.assertThat(accessor("number", methodHandle).get(sample)).isEqualTo(42);
+        Assertions.assertThat(accessor("total", methodHandle).get(sample)).isEqualTo(7L);
+        Assertions.assertThat(accessor("active", methodHandle).get(sample)).isEqualTo(true);
+        Assertions.assertThat(accessor("name", methodHandle).get(sample)).isEqualTo("Java");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void shouldReadPrimitives(boolean methodHandle) throws NoSuchFieldException {
+        Assertions.assertThat(accessor("number", methodHandle).getInt(sample)).isEqualTo(42);
+        Assertions.assertThat(accessor("total", methodHandle).getLong(sample)).isEqualTo(7L);
+        Assertions.assertThat(accessor("active", methodHandle).getBoolean(sample)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void shouldReturnErrorWhenEntityIsNotOfTheType(boolean methodHandle) throws NoSuchFieldException {
+        FieldAccessor accessor = accessor("name", methodHandle);
+        Assertions.assertThatThrownBy(() -> accessor.get("not a sample")).isInstanceOf(RuntimeException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"number", "total", "active", "name"})
+    public void shouldCompareValues(String name) throws NoSuchFieldException {
+        Field field = Sample.class.getDeclaredField(name);
+        field.setAccessible(true);
+        FieldMetadata metadata = FieldMetadata.of(field, 0);
+        Sample other = new Sample(43, 8L, false, "Kotlin");
+
+        Assertions.assertThat(Integer.signum(metadata.compare(sample, other)))
+                .isEqualTo(Integer.signum(((Comparable<Object>) metadata.get(sample)).compareTo(metadata.get(other))));
+        Assertions.assertThat(metadata.compare(sample, sample)).isZero();
+    }
+
+    private FieldAccessor accessor(String name, boolean methodHandle) throws NoSuchFieldException {
+        Field field = Sample.class.getDeclaredField(name);
+        field.setAccessible(true);
+        FieldAccessor accessor = methodHandle ? FieldAccessor.of(field) : new ReflectionAccessor(field);
+        Assertions.assertThat(accessor).isInstanceOf(methodHandle ? MethodHandleAccessor.class : ReflectionAccessor.class);
+        return accessor;
+    }
+
+    private static final class Sample {
+
+        private final int number;
+
+        private final long total;
+
+        private final boolean active;
+
+        private final String name;
+
+        private Sample(int number, long total, boolean active, String name) {
+            this.number = number;
+            this.total = total;
+            this.active = active;
+            this.name = name;
+        }
+    }
+}
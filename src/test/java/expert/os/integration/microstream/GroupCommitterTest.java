@@ -0,0 +1,172 @@
+/*
+ *  Copyright (c) 2023 Otavio & Rudy
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import one.microstream.persistence.types.Persister;
+import one.microstream.persistence.types.Storer;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+class GroupCommitterTest {
+
+    private Persister persister;
+
+    private Storer storer;
+
+    private GroupCommitter committer;
+
+    private Lock guard;
+
+    @BeforeEach
+    public void setUp() {
+        this.persister = Mockito.mock(Persister.class);
+        this.storer = Mockito.mock(Storer.class);
+        Mockito.when(persister.createStorer()).thenReturn(storer);
+        this.committer = new GroupCommitter(persister, 200L, 1000);
+        this.guard = new ReentrantLock();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.committer.close();
+    }
+
+    @Test
+    public void shouldGroupWritesOnSingleCommit() throws Exception {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int index = 0; index < 10; index++) {
+            futures.add(this.committer.submit(List.of(index), this.guard));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        Mockito.verify(this.storer, Mockito.times(10)).storeAll(ArgumentMatchers.<Iterable<?>>any());
+        Mockito.verify(this.storer).commit();
+        Mockito.verify(this.persister, Mockito.never()).store(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void shouldCommitWhenBatchIsFull() throws Exception {
+        this.committer.close();
+        this.committer = new GroupCommitter(persister, 10_000L, 2);
+        CompletableFuture<Void> first = this.committer.submit(List.of(1, 2), this.guard);
+        first.get(5, TimeUnit.SECONDS);
+        Mockito.verify(this.storer).commit();
+    }
+
+    @Test
+    public void shouldBlockWritersUntilCommit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int index = 0; index < 4; index++) {
+                int value = index;
+                writers.add(executor.submit(() -> Committer.await(List.of(this.committer.submit(List.of(value), this.guard)))));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Mockito.verify(this.storer, Mockito.atMost(4)).commit();
+        Mockito.verify(this.storer, Mockito.times(4)).storeAll(ArgumentMatchers.<Iterable<?>>any());
+    }
+
+    @Test
+    public void shouldStoreUnderTheGuard() throws Exception {
+        CompletableFuture<Void> future;
+        this.guard.lock();
+        try {
+            future = this.committer.submit(List.of("one"), this.guard);
+            Assertions.assertThat(future).isNotDone();
+            Thread.sleep(400L);
+            Assertions.assertThat(future).isNotDone();
+            Mockito.verify(this.storer, Mockito.never()).storeAll(ArgumentMatchers.<Iterable<?>>any());
+        } finally {
+            this.guard.unlock();
+        }
+        future.get(5, TimeUnit.SECONDS);
+        Mockito.verify(this.storer).storeAll(List.of("one"));
+        Mockito.verify(this.storer).commit();
+    }
+
+    @Test
+    public void shouldReturnErrorWhenGuardIsNull() {
+        Assertions.assertThatThrownBy(() -> this.committer.submit(List.of("one"), null))
+                .isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    public void shouldReturnErrorWhenCommitFails() {
+        Mockito.when(this.storer.commit()).thenThrow(new IllegalStateException("storage is down"));
+        Assertions.assertThatThrownBy(() -> Committer.await(List.of(this.committer.submit(List.of("one"), this.guard))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("storage is down");
+    }
+
+    @Test
+    public void shouldCommitPendingWritesOnClose() throws Exception {
+        CompletableFuture<Void> future = this.committer.submit(List.of("one"), this.guard);
+        this.committer.close();
+        Assertions.assertThat(future.get(1, TimeUnit.SECONDS)).isNull();
+        Assertions.assertThatThrownBy(() -> this.committer.submit(List.of("two"), this.guard))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void shouldCompleteEveryWriteSubmittedDuringClose() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<Void>> futures = new CopyOnWriteArrayList<>();
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int index = 0; index < 4; index++) {
+                writers.add(executor.submit(() -> {
+                    for (int value = 0; value < 1000; value++) {
+                        try {
+                            futures.add(this.committer.submit(List.of(value), this.guard));
+                        } catch (IllegalStateException exp) {
+                            return;
+                        }
+                    }
+                }));
+            }
+            this.committer.close();
+            for (Future<?> writer : writers) {
+                writer.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (CompletableFuture<Void> future : futures) {
+            Assertions.assertThat(future).succeedsWithin(1, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright (c) 2023 Otavio & Rudy
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HashIndexTest {
+
+    private HashIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        EntityMetadata metadata = EntityMetadata.of(MutableEntity.class);
+        this.index = new HashIndex(metadata.field("value").orElseThrow());
+    }
+
+    @Test
+    public void shouldReturnKeysByValue() {
+        this.index.put("one", MutableEntity.of("one", "java"));
+        this.index.put("two", MutableEntity.of("two", "java"));
+        this.index.put("three", MutableEntity.of("three", "kotlin"));
+
+        Assertions.assertThat(this.index.keys("java")).containsExactlyInAnyOrder("one", "two");
+        Assertions.assertThat(this.index.keys("kotlin")).containsExactly("three");
+        Assertions.assertThat(this.index.keys("scala")).isEmpty();
+    }
+
+    @Test
+    public void shouldMoveKeyWhenEntityChangesInPlace() {
+        MutableEntity entity = MutableEntity.of("one", "java");
+        this.index.put("one", entity);
+        entity.setValue("kotlin");
+        this.index.put("one", entity);
+
+        Assertions.assertThat(this.index.keys("java")).isEmpty();
+        Assertions.assertThat(this.index.keys("kotlin")).containsExactly("one");
+    }
+
+    @Test
+    public void shouldRemoveKey() {
+        this.index.put("one", MutableEntity.of("one", "java"));
+        this.index.put("two", MutableEntity.of("two", "java"));
+        this.index.remove("one");
+        this.index.remove("invalid");
+
+        Assertions.assertThat(this.index.keys("java")).containsExactly("two");
+    }
+
+    @Test
+    public void shouldIgnoreNullValues() {
+        this.index.put("one", MutableEntity.of("one", "java"));
+        this.index.put("one", new MutableEntity("one"));
+
+        Assertions.assertThat(this.index.keys("java")).isEmpty();
+        Assertions.assertThat(this.index.keys(null)).isEmpty();
+    }
+
+    @Test
+    public void shouldClear() {
+        this.index.put("one", MutableEntity.of("one", "java"));
+        this.index.clear();
+
+        Assertions.assertThat(this.index.keys("java")).isEmpty();
+    }
+}
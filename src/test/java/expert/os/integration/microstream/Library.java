@@ -21,6 +21,7 @@ import jakarta.data.repository.PageableRepository;
 import jakarta.data.repository.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -59,10 +60,14 @@ public interface Library  extends PageableRepository<Book, String> {
 
     List<Book> findByActiveFalse();
 
+    Optional<Book> findByAuthor(String author);
+
     Long countByActiveTrue();
 
     boolean existsByActiveTrue();
 
     void  deleteByActiveTrue();
+
+    long deleteByActiveFalse();
 }
 
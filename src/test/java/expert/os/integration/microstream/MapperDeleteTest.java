@@ -26,7 +26,6 @@ import org.mockito.Mockito;
 
 import java.time.Year;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -43,19 +42,29 @@ public class MapperDeleteTest {
         Persister persister = Mockito.mock(Persister.class);
         Storer storer = Mockito.mock(Storer.class);
         Mockito.when(persister.createEagerStorer()).thenReturn(storer);
-        this.data = new DataStorage(new HashMap<>(), persister);
         Entities entities = Entities.of(Set.of(Book.class, Car.class));
+        this.data = new DataStorage(new DataRoot(), persister, StorageSettings.DEFAULT, entities);
         this.template = new MicrostreamTemplate(data, entities);
         this.template.insert(library());
         this.template.insert(garage());
     }
 
+    @Test
+    public void shouldDeleteAllWithTheAllCondition() {
+        MicrostreamTemplate spy = Mockito.spy((MicrostreamTemplate) this.template);
+        new MapperDelete(spy.metadata(Book.class), spy).execute();
+
+        Mockito.verify(spy).remove(Book.class, Condition.all());
+        Assertions.assertThat(this.data.values(Book.class)).isEmpty();
+    }
+
     @Test
     public void shouldReturnDeleteFrom() {
         this.template.delete(Book.class).execute();
         SoftAssertions.assertSoftly(soft -> {
             soft.assertThat(this.data.isEmpty()).isFalse();
-            soft.assertThat(this.data.values()).noneMatch(Book.class::isInstance);
+            soft.assertThat(this.data.values(Book.class)).isEmpty();
+            soft.assertThat(this.data.values(Car.class)).isNotEmpty();
         });
     }
 
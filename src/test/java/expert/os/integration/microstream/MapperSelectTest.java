@@ -19,7 +19,6 @@ package expert.os.integration.microstream;
 import jakarta.data.exceptions.MappingException;
 import jakarta.data.exceptions.NonUniqueResultException;
 import jakarta.nosql.Template;
-import one.microstream.collections.lazy.LazyHashMap;
 import one.microstream.persistence.types.Persister;
 import one.microstream.persistence.types.Storer;
 import org.junit.jupiter.api.Assertions;
@@ -49,8 +48,8 @@ class MapperSelectTest {
         Persister persister = Mockito.mock(Persister.class);
         Storer storer = Mockito.mock(Storer.class);
         Mockito.when(persister.createEagerStorer()).thenReturn(storer);
-        DataStorage data = new DataStorage(new LazyHashMap<>(), persister);
         Entities entities = Entities.of(Set.of(Book.class, Car.class));
+        DataStorage data = new DataStorage(new DataRoot(), persister, StorageSettings.DEFAULT, entities);
         this.template = new MicrostreamTemplate(data, entities);
         this.template.insert(library());
         this.template.insert(garage());
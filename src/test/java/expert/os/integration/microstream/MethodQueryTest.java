@@ -0,0 +1,103 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import jakarta.data.exceptions.MappingException;
+import jakarta.data.repository.Pageable;
+import jakarta.data.repository.PageableRepository;
+import jakarta.data.repository.Sort;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.List;
+
+class MethodQueryTest {
+
+    private final EntityMetadata metadata = EntityMetadata.of(Book.class);
+
+    @Test
+    public void shouldBindParameters() throws NoSuchMethodException {
+        Method method = Library.class.getMethod("findByTitleAndEdition", String.class, Integer.class);
+        MethodQuery query = MethodQuery.of(method, metadata);
+        FieldMetadata title = metadata.field("title").orElseThrow();
+        FieldMetadata edition = metadata.field("edition").orElseThrow();
+
+        Assertions.assertThat(query.type()).isEqualTo(RepositoryType.FIND_BY);
+        Assertions.assertThat(query.condition(new Object[]{"Clean Code", 1}))
+                .isEqualTo(Condition.eq(title, "Clean Code").and(Condition.eq(edition, 1)));
+        Assertions.assertThat(query.condition(new Object[]{"Effective Java", 3}))
+                .isEqualTo(Condition.eq(title, "Effective Java").and(Condition.eq(edition, 3)));
+    }
+
+    @Test
+    public void shouldReturnErrorWhenParameterIsMissing() throws NoSuchMethodException {
+        MethodQuery query = MethodQuery.of(Library.class.getMethod("findByTitle", String.class), metadata);
+        Assertions.assertThatThrownBy(() -> query.condition(new Object[0])).isInstanceOf(MappingException.class);
+        Assertions.assertThatThrownBy(() -> query.condition(new Object[]{null}))
+                .isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    public void shouldKeepStaticOrder() throws NoSuchMethodException {
+        MethodQuery query = MethodQuery.of(Library.class.getMethod("findByTitleOrderByIsbn", String.class), metadata);
+        FieldMetadata isbn = metadata.field("isbn").orElseThrow();
+        FieldMetadata edition = metadata.field("edition").orElseThrow();
+
+        List<Comparator<?>> comparators = query.comparators(new Object[]{"Clean Code"});
+        Assertions.assertThat(comparators).containsExactly(isbn.comparator());
+        Assertions.assertThat(query.comparators(new Object[]{"Effective Java"})).isSameAs(comparators);
+        Assertions.assertThat(query.comparators(new Object[]{"Clean Code", Sort.desc("edition")}))
+                .containsExactly(isbn.comparator(), edition.reversed());
+    }
+
+    @Test
+    public void shouldUsePageable() throws NoSuchMethodException {
+        MethodQuery query = MethodQuery.of(Library.class.getMethod("findByTitle", String.class, Pageable.class),
+                metadata);
+        Pageable pageable = Pageable.ofPage(3).size(10);
+
+        Assertions.assertThat(query.skip(pageable)).isEqualTo(20L);
+        Assertions.assertThat(query.limit(pageable)).isEqualTo(10L);
+        Assertions.assertThat(query.skip(null)).isZero();
+    }
+
+    @Test
+    public void shouldMatchAllWithoutCondition() throws NoSuchMethodException {
+        MethodQuery query = MethodQuery.of(PageableRepository.class.getMethod("count"), metadata);
+        Assertions.assertThat(query.type()).isEqualTo(RepositoryType.DEFAULT);
+        Assertions.assertThat(query.condition(null)).isEqualTo(Condition.all());
+    }
+
+    @Test
+    public void shouldTakeFirstMatchOfSingleResult() throws NoSuchMethodException {
+        MethodQuery query = MethodQuery.of(Library.class.getMethod("findByAuthor", String.class), metadata);
+
+        Assertions.assertThat(query.limit(null)).isEqualTo(1L);
+        Assertions.assertThat(query.limit(Pageable.ofSize(10))).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldReturnErrorWhenFieldDoesNotExist() throws NoSuchMethodException {
+        Method method = Invalid.class.getMethod("findByName", String.class);
+        Assertions.assertThatThrownBy(() -> MethodQuery.of(method, metadata)).isInstanceOf(MappingException.class);
+    }
+
+    interface Invalid extends PageableRepository<Book, String> {
+        List<Book> findByName(String name);
+    }
+}
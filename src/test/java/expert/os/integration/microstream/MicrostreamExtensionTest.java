@@ -42,6 +42,9 @@ public class MicrostreamExtensionTest {
     @Inject
     private Library library;
 
+    @Inject
+    private Explainer explainer;
+
     @Inject
     @Microstream
     private Library libraryMicro;
@@ -53,6 +56,7 @@ public class MicrostreamExtensionTest {
         Assertions.assertNotNull(library);
         Assertions.assertNotNull(libraryMicro);
         Assertions.assertNotNull(microTemplate);
+        Assertions.assertNotNull(explainer);
     }
 }
 
@@ -48,6 +48,18 @@ class MicrostreamPageTest {
         Assertions.assertThrows(UnsupportedOperationException.class, page::totalElements);
     }
 
+    @Test
+    public void shouldReturnTotals() {
+        Page<Person> page = MicrostreamPage.of(Collections.singletonList(otavio),
+                Pageable.ofSize(2).page(3), 5);
+
+        Assertions.assertEquals(5, page.totalElements());
+        Assertions.assertEquals(3, page.totalPages());
+        Assertions.assertEquals(0, MicrostreamPage.of(Collections.emptyList(), Pageable.ofSize(2), 0).totalPages());
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                MicrostreamPage.of(Collections.emptyList(), Pageable.ofSize(2), -1));
+    }
+
     @Test
     public void shouldReturnHasContent() {
 
@@ -19,7 +19,6 @@ package expert.os.integration.microstream;
 import jakarta.data.repository.Page;
 import jakarta.data.repository.Pageable;
 import jakarta.data.repository.Sort;
-import one.microstream.collections.lazy.LazyHashMap;
 import one.microstream.persistence.types.Persister;
 import one.microstream.persistence.types.Storer;
 import org.assertj.core.api.Assertions;
@@ -56,7 +55,7 @@ public class MicrostreamRepositoryTest {
         Persister persister = Mockito.mock(Persister.class);
         Storer storer = Mockito.mock(Storer.class);
         Mockito.when(persister.createEagerStorer()).thenReturn(storer);
-        this.data = new DataStorage(new LazyHashMap<>(), persister);
+        this.data = new DataStorage(new DataRoot(), persister);
         this.template = new MicrostreamTemplate(data, entities);
         this.library = new MicrostreamRepository<>(template, Book.class);
     }
@@ -343,6 +342,8 @@ public class MicrostreamRepositoryTest {
         Pageable pageable = Pageable.ofSize(2).page(2L).sortBy(Sort.desc("title"));
         Page<Book> page = this.library.findAll(pageable);
         assertThat(page.numberOfElements()).isEqualTo(1);
+        assertThat(page.totalElements()).isEqualTo(books.size());
+        assertThat(page.totalPages()).isEqualTo((books.size() + 1) / 2);
         List<Book> result = books.stream().sorted(Comparator.comparing(Book::title).reversed())
                 .skip(2L)
                 .collect(toUnmodifiableList());
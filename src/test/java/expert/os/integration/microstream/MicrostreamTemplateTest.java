@@ -15,7 +15,6 @@
 
 package expert.os.integration.microstream;
 
-import one.microstream.collections.lazy.LazyHashMap;
 import one.microstream.persistence.types.Persister;
 import one.microstream.persistence.types.Storer;
 import org.assertj.core.api.SoftAssertions;
@@ -44,8 +43,8 @@ class MicrostreamTemplateTest {
         Persister persister = Mockito.mock(Persister.class);
         Storer storer = Mockito.mock(Storer.class);
         Mockito.when(persister.createEagerStorer()).thenReturn(storer);
-        DataStorage data = new DataStorage(new LazyHashMap<>(), persister);
         Entities entities = Entities.of(Set.of(Book.class, Car.class));
+        DataStorage data = new DataStorage(new DataRoot(), persister, StorageSettings.DEFAULT, entities);
         this.template = new MicrostreamTemplate(data, entities);
 
     }
@@ -100,12 +99,33 @@ class MicrostreamTemplateTest {
 
     @ParameterizedTest
     @ArgumentsSource(BookArgumentProvider.class)
-    public void shouldUnsupportedWhenItHasTtl(Book book) {
-        Assertions.assertThrows(UnsupportedOperationException.class, () ->
-                this.template.insert(book, Duration.ofSeconds(2L)));
+    public void shouldInsertWithTtl(Book book) throws InterruptedException {
+        assertThat(this.template.insert(book, Duration.ofMillis(200L))).isEqualTo(book);
+        assertThat(this.template.find(Book.class, book.isbn())).contains(book);
 
-        Assertions.assertThrows(UnsupportedOperationException.class, () ->
-                this.template.insert(Collections.singleton(book), Duration.ofSeconds(2L)));
+        Thread.sleep(300L);
+        assertThat(this.template.find(Book.class, book.isbn())).isEmpty();
+        assertThat(this.template.select(Book.class).result()).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(BooksArgumentProvider.class)
+    public void shouldInsertAllWithTtl(List<Book> books) throws InterruptedException {
+        assertThat(this.template.insert(books, Duration.ofMillis(200L))).containsExactlyElementsOf(books);
+        assertThat(this.template.select(Book.class).result()).hasSize(3);
+
+        Thread.sleep(300L);
+        assertThat(this.template.select(Book.class).result()).isEmpty();
+        assertThat(this.template.count(Book.class, Condition.all())).isZero();
+    }
+
+    @ParameterizedTest
+    @ArgumentsSource(BookArgumentProvider.class)
+    public void shouldReturnErrorWhenTtlIsInvalid(Book book) {
+        Assertions.assertThrows(NullPointerException.class, () -> this.template.insert(book, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.template.insert(book, Duration.ZERO));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                this.template.insert(Collections.singleton(book), Duration.ofSeconds(-1L)));
     }
 
     @ParameterizedTest
@@ -156,7 +176,7 @@ class MicrostreamTemplateTest {
     @ArgumentsSource(BooksArgumentProvider.class)
     public void shouldReturnEntities(List<Book> books) {
         this.template.insert(books);
-        Stream<Book> entities = this.template.entities();
+        Stream<Book> entities = this.template.entities(Book.class);
         assertThat(entities).containsAll(books);
     }
 
@@ -248,13 +268,13 @@ class MicrostreamTemplateTest {
 
     @ParameterizedTest
     @ArgumentsSource(BookCarArgumentProvider.class)
-    public void shouldSaveSeveralEntitiesWithConflict(Book book, Car car) {
+    public void shouldSaveSeveralEntitiesWithSameId(Book book, Car car) {
         Car carConflict = Car.of(book.isbn(), car.model(), car.release());
         this.template.insert(book);
         this.template.insert(carConflict);
 
         assertThat(this.template.find(Book.class, book.isbn()))
-                .isNotNull().isEmpty();
+                .isNotNull().contains(book);
 
         Optional<Car> optional = this.template.find(Car.class, carConflict.plate());
 
@@ -271,16 +291,111 @@ class MicrostreamTemplateTest {
 
     @ParameterizedTest
     @ArgumentsSource(BookCarArgumentProvider.class)
-    public void shouldDeleteIdIgnoringType(Book book, Car car) {
+    public void shouldDeleteIdByType(Book book, Car car) {
         this.template.insert(List.of(book, car));
 
         template.delete(Book.class, car.plate());
         template.delete(Car.class, book.isbn());
 
+        assertThat(this.template.find(Book.class, book.isbn()))
+                .isNotNull().contains(book);
+
+        assertThat(this.template.find(Car.class, car.plate()))
+                .isNotNull().isNotEmpty();
+
+        template.delete(Book.class, book.isbn());
+        template.delete(Car.class, car.plate());
+
         assertThat(this.template.find(Book.class, book.isbn()))
                 .isNotNull().isEmpty();
 
         assertThat(this.template.find(Car.class, car.plate()))
                 .isNotNull().isEmpty();
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @ArgumentsSource(BookCarArgumentProvider.class)
+    public void shouldSizeByType(Book book, Car car) {
+        this.template.insert(List.of(book, car));
+
+        assertThat(this.template.size()).isEqualTo(2L);
+        assertThat(this.template.size(Book.class)).isEqualTo(1L);
+        assertThat(this.template.size(Car.class)).isEqualTo(1L);
+
+        this.template.deleteAll(Book.class);
+
+        assertThat(this.template.size(Book.class)).isZero();
+        assertThat(this.template.size(Car.class)).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldFindOnlyByTheEntityType() {
+        Book book = Book.builder().isbn("1").title("Effective Java").edition(1).build();
+        this.template.insert(book);
+
+        assertThat(this.template.find(Book.class, "1")).contains(book);
+        assertThat(this.template.find(Object.class, "1")).isEmpty();
+    }
+
+    @Test
+    public void shouldExplainSelectAndRepositoryMethod() throws NoSuchMethodException {
+        this.template.insert(List.of(Book.builder().isbn("1").title("Effective Java").edition(1).build(),
+                Book.builder().isbn("2").title("Effective Java").edition(2).build(),
+                Book.builder().isbn("3").title("Clean Code").edition(1).build()));
+
+        QueryPlan select = this.template.explain(this.template.select(Book.class).where("isbn").in(List.of("1", "3", "4"))
+                .orderBy("title").asc());
+        assertThat(select.access()).isEqualTo(QueryPlan.Access.KEY);
+        assertThat(select.order()).isEqualTo(QueryPlan.Order.SORT);
+        assertThat(select.estimated()).isEqualTo(3L);
+        assertThat(select.explain()).isEqualTo("Book: KEY 3 candidates, order SORT");
+
+        QueryPlan method = this.template.explain(Book.class, Library.class.getMethod("findByTitle", String.class),
+                "Effective Java");
+        assertThat(method.access()).isEqualTo(QueryPlan.Access.INDEX);
+        assertThat(method.estimated()).isEqualTo(2L);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.template.explain(Book.class,
+                Library.class.getMethod("findAll")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.template.explain(
+                Mockito.mock(jakarta.nosql.QueryMapper.MapperQueryBuild.class)));
+    }
+
+    @Test
+    public void shouldAnalyzeSelectAndRepositoryMethod() throws NoSuchMethodException {
+        this.template.insert(List.of(Book.builder().isbn("1").title("Effective Java").edition(1).build(),
+                Book.builder().isbn("2").title("Effective Java").edition(2).build(),
+                Book.builder().isbn("3").title("Clean Code").edition(1).build()));
+
+        QueryExplain select = this.template.analyze(this.template.select(Book.class).where("isbn").in(List.of("1", "3", "4"))
+                .orderBy("title").asc());
+        assertThat(select.plan().access()).isEqualTo(QueryPlan.Access.KEY);
+        assertThat(select.plan().order()).isEqualTo(QueryPlan.Order.SORT);
+        assertThat(select.scanned()).isEqualTo(2L);
+        assertThat(select.matched()).isEqualTo(2L);
+        assertThat(select.returned()).isEqualTo(2L);
+        assertThat(select.stages()).containsOnlyKeys("plan", "read", "sort");
+        assertThat(select.explain()).startsWith("Book: KEY 3 candidates, order SORT; scanned 2, matched 2, returned 2; plan ");
+
+        QueryExplain method = this.template.analyze(Book.class, Library.class.getMethod("findByTitle", String.class),
+                "Effective Java");
+        assertThat(method.plan().access()).isEqualTo(QueryPlan.Access.INDEX);
+        assertThat(method.scanned()).isEqualTo(2L);
+        assertThat(method.returned()).isEqualTo(2L);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.template.analyze(Book.class,
+                Library.class.getMethod("findAll")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.template.analyze(
+                Mockito.mock(jakarta.nosql.QueryMapper.MapperQueryBuild.class)));
+    }
+
+    @Test
+    public void shouldCheckExists() {
+        this.template.insert(Book.builder().isbn("1").title("Effective Java").edition(1).build());
+        FieldMetadata title = this.template.metadata(Book.class).field("title").orElseThrow();
+
+        assertThat(this.template.exists(Book.class, Condition.eq(title, "Effective Java"))).isTrue();
+        assertThat(this.template.exists(Book.class, Condition.eq(title, "Clean Code"))).isFalse();
+        assertThat(this.template.exists(Car.class, Condition.all())).isFalse();
+    }
+}
@@ -23,6 +23,7 @@ public class MutableEntity {
     private String id;
 
     @Column
+    @Index
     private String value;
 
     public MutableEntity(String id) {
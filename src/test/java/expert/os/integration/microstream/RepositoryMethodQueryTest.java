@@ -20,7 +20,6 @@ import jakarta.data.exceptions.MappingException;
 import jakarta.data.repository.Page;
 import jakarta.data.repository.Pageable;
 import jakarta.data.repository.Sort;
-import one.microstream.collections.lazy.LazyHashMap;
 import one.microstream.persistence.types.Persister;
 import one.microstream.persistence.types.Storer;
 import org.assertj.core.api.Assertions;
@@ -55,7 +54,7 @@ public class RepositoryMethodQueryTest {
         Persister persister = Mockito.mock(Persister.class);
         Storer storer = Mockito.mock(Storer.class);
         Mockito.when(persister.createEagerStorer()).thenReturn(storer);
-        DataStorage data = new DataStorage(new LazyHashMap<>(), persister);
+        DataStorage data = new DataStorage(new DataRoot(), persister, StorageSettings.DEFAULT, entities);
         MicrostreamTemplate template = new MicrostreamTemplate(data, entities);
         this.library = RepositoryProxySupplier.INSTANCE.get(Library.class, template);
         template.insert(garage());
@@ -259,6 +258,17 @@ public class RepositoryMethodQueryTest {
 
     }
 
+    @ParameterizedTest
+    @MethodSource("arguments")
+    public void shouldReturnRemovedOnDeleteByActiveFalse(List<Book> books) {
+        this.library.saveAll(books);
+        long inactive = books.stream().filter(b -> !b.active()).count();
+
+        assertThat(this.library.deleteByActiveFalse()).isEqualTo(inactive);
+        assertThat(this.library.deleteByActiveFalse()).isZero();
+        assertThat(this.library.count()).isEqualTo(books.size() - inactive);
+    }
+
     @ParameterizedTest
     @MethodSource("arguments")
     public void shouldFindByTitlePageable(List<Book> books) {
@@ -280,6 +290,9 @@ public class RepositoryMethodQueryTest {
                 .hasSize(1)
                 .allMatch(b -> b.title().equals(title))
                 .allMatch(b -> b.edition() == 2);
+        long total = books.stream().filter(b -> b.title().equals(title)).count();
+        Assertions.assertThat(second.totalElements()).isEqualTo(total);
+        Assertions.assertThat(second.totalPages()).isEqualTo(total);
     }
 
     static Stream<? extends Arguments> arguments() {
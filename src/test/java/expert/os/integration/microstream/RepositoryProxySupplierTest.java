@@ -17,7 +17,6 @@ package expert.os.integration.microstream;
 
 import jakarta.data.repository.CrudRepository;
 import jakarta.data.repository.PageableRepository;
-import one.microstream.collections.lazy.LazyHashMap;
 import one.microstream.persistence.types.Persister;
 import one.microstream.persistence.types.Storer;
 import org.junit.jupiter.api.BeforeEach;
@@ -40,7 +39,7 @@ class RepositoryProxySupplierTest {
         Persister persister = Mockito.mock(Persister.class);
         Storer storer = Mockito.mock(Storer.class);
         Mockito.when(persister.createEagerStorer()).thenReturn(storer);
-        DataStorage data = new DataStorage(new LazyHashMap<>(), persister);
+        DataStorage data = new DataStorage(new DataRoot(), persister);
         Entities entities = Entities.of(Collections.singleton(Book.class));
         this.template = new MicrostreamTemplate(data, entities);
 
@@ -0,0 +1,110 @@
+/*
+ *  Copyright (c) 2023 Otavio & Rudy
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ResultCacheTest {
+
+    private final FieldMetadata title = EntityMetadata.of(Book.class).field("title").orElseThrow();
+
+    @Test
+    public void shouldReturnErrorWhenNegative() {
+        Assertions.assertThatThrownBy(() -> ResultCache.of(-1)).isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThat(ResultCache.of(0)).isSameAs(ResultCache.DISABLED);
+    }
+
+    @Test
+    public void shouldCacheStructuredQuery() {
+        ResultCache cache = ResultCache.of(10);
+        AtomicInteger queries = new AtomicInteger();
+
+        List<Object> first = cache.get(Book.class, Condition.eq(title, "Clean Code"), List.of(title.comparator()), 0, 10,
+                () -> List.of(queries.incrementAndGet()));
+        List<Object> second = cache.get(Book.class, Condition.eq(title, "Clean Code"), List.of(title.comparator()), 0, 10,
+                () -> List.of(queries.incrementAndGet()));
+
+        Assertions.assertThat(second).isSameAs(first);
+        Assertions.assertThat(queries).hasValue(1);
+        Assertions.assertThat(cache.hits()).isEqualTo(1L);
+        Assertions.assertThat(cache.misses()).isEqualTo(1L);
+
+        cache.get(Book.class, Condition.eq(title, "Clean Code"), List.of(title.comparator()), 10, 10,
+                () -> List.of(queries.incrementAndGet()));
+        Assertions.assertThat(queries).hasValue(2);
+    }
+
+    @Test
+    public void shouldNotCacheOpaquePredicate() {
+        ResultCache cache = ResultCache.of(10);
+        AtomicInteger queries = new AtomicInteger();
+        Condition condition = Condition.of(b -> true);
+
+        cache.get(Book.class, condition, Collections.emptyList(), 0, 0, () -> List.of(queries.incrementAndGet()));
+        cache.get(Book.class, condition, Collections.emptyList(), 0, 0, () -> List.of(queries.incrementAndGet()));
+        cache.get(Book.class, Condition.all(), List.of((a, b) -> 0), 0, 0, () -> List.of(queries.incrementAndGet()));
+        cache.get(Book.class, Condition.all(), List.of((a, b) -> 0), 0, 0, () -> List.of(queries.incrementAndGet()));
+
+        Assertions.assertThat(queries).hasValue(4);
+        Assertions.assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void shouldInvalidateOnlyTheType() {
+        ResultCache cache = ResultCache.of(10);
+        AtomicInteger queries = new AtomicInteger();
+
+        cache.get(Book.class, Condition.all(), Collections.emptyList(), 0, 0, () -> List.of(queries.incrementAndGet()));
+        cache.get(Car.class, Condition.all(), Collections.emptyList(), 0, 0, () -> List.of(queries.incrementAndGet()));
+        cache.invalidate(Book.class);
+        cache.get(Book.class, Condition.all(), Collections.emptyList(), 0, 0, () -> List.of(queries.incrementAndGet()));
+        cache.get(Car.class, Condition.all(), Collections.emptyList(), 0, 0, () -> List.of(queries.incrementAndGet()));
+
+        Assertions.assertThat(queries).hasValue(3);
+    }
+
+    @Test
+    public void shouldNotKeepResultOfConcurrentWrite() {
+        ResultCache cache = ResultCache.of(10);
+        AtomicInteger queries = new AtomicInteger();
+
+        cache.get(Book.class, Condition.all(), Collections.emptyList(), 0, 0, () -> {
+            cache.invalidate(Book.class);
+            return List.of(queries.incrementAndGet());
+        });
+        cache.get(Book.class, Condition.all(), Collections.emptyList(), 0, 0, () -> List.of(queries.incrementAndGet()));
+
+        Assertions.assertThat(queries).hasValue(2);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        ResultCache cache = ResultCache.of(2);
+        AtomicInteger queries = new AtomicInteger();
+        for (String value : List.of("a", "b", "a", "c", "a", "b")) {
+            cache.get(Book.class, Condition.eq(title, value), Collections.emptyList(), 0, 0,
+                    () -> List.of(queries.incrementAndGet()));
+        }
+
+        Assertions.assertThat(queries).hasValue(4);
+        Assertions.assertThat(cache.size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Copyright (c) 2023 Otavio & Rudy
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+class SortedIndexTest {
+
+    private SortedIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        EntityMetadata metadata = EntityMetadata.of(Book.class);
+        this.index = new SortedIndex(metadata.field("edition").orElseThrow());
+        for (int edition = 1; edition <= 5; edition++) {
+            String isbn = Integer.toString(edition);
+            this.index.put(isbn, Book.builder().isbn(isbn).edition(edition).build());
+        }
+    }
+
+    @Test
+    public void shouldReturnKeysByValue() {
+        Assertions.assertThat(this.index.keys(3)).containsExactly("3");
+        Assertions.assertThat(this.index.keys(10)).isEmpty();
+        Assertions.assertThat(this.index.keys("3")).isEmpty();
+        Assertions.assertThat(this.index.size()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldReturnRange() {
+        Assertions.assertThat(this.index.range(2, false, null, false)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactlyInAnyOrder("3", "4", "5"));
+        Assertions.assertThat(this.index.range(2, true, 4, false)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactlyInAnyOrder("2", "3"));
+        Assertions.assertThat(this.index.range(null, false, 2, true)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactlyInAnyOrder("1", "2"));
+    }
+
+    @Test
+    public void shouldNotReturnRangeOfIncompatibleType() {
+        Assertions.assertThat(this.index.range(2L, false, null, false)).isEmpty();
+    }
+
+    @Test
+    public void shouldReturnInOrder() {
+        Assertions.assertThat(this.index.ordered(true).orElseThrow().map(Set::iterator).map(i -> i.next()))
+                .containsExactly("1", "2", "3", "4", "5");
+        Assertions.assertThat(this.index.ordered(false).orElseThrow().map(Set::iterator).map(i -> i.next()))
+                .containsExactly("5", "4", "3", "2", "1");
+    }
+
+    @Test
+    public void shouldMoveKeyWhenValueChanges() {
+        this.index.put("1", Book.builder().isbn("1").edition(10).build());
+        this.index.remove("2");
+        Assertions.assertThat(this.index.range(5, false, null, false)).hasValueSatisfying(keys ->
+                Assertions.assertThat(keys).containsExactly("1"));
+        Assertions.assertThat(this.index.ordered(true).orElseThrow().flatMap(Set::stream).toList())
+                .isEqualTo(List.of("3", "4", "5", "1"));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2023 Otavio
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import io.smallrye.config.PropertiesConfigSource;
+import io.smallrye.config.SmallRyeConfigBuilder;
+import org.assertj.core.api.Assertions;
+import org.eclipse.microprofile.config.Config;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+class StorageSettingsTest {
+
+    @Test
+    public void shouldReturnNPEWhenConfigIsNull() {
+        Assertions.assertThatThrownBy(() -> StorageSettings.of(null))
+                .isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    public void shouldUseDefaultStripes() {
+        StorageSettings settings = StorageSettings.of(config(Map.of()));
+        Assertions.assertThat(settings).isEqualTo(StorageSettings.DEFAULT);
+    }
+
+    @Test
+    public void shouldReadStripes() {
+        StorageSettings settings = StorageSettings.of(config(Map.of(StorageSettings.STRIPES, "16")));
+        Assertions.assertThat(settings.stripes()).isEqualTo(16);
+    }
+
+    @Test
+    public void shouldReadGroupCommit() {
+        StorageSettings settings = StorageSettings.of(config(Map.of(StorageSettings.COMMIT_WINDOW, "5",
+                StorageSettings.COMMIT_BATCH, "200")));
+        Assertions.assertThat(settings.isGroupCommit()).isTrue();
+        Assertions.assertThat(settings.commitWindow()).isEqualTo(5L);
+        Assertions.assertThat(settings.commitBatch()).isEqualTo(200);
+        Assertions.assertThat(StorageSettings.DEFAULT.isGroupCommit()).isFalse();
+    }
+
+    @Test
+    public void shouldReadParallelThreshold() {
+        StorageSettings settings = StorageSettings.of(config(Map.of(StorageSettings.PARALLEL_THRESHOLD, "1000")));
+        Assertions.assertThat(settings.parallelThreshold()).isEqualTo(1000);
+        Assertions.assertThat(settings.isParallel(999)).isFalse();
+        Assertions.assertThat(settings.isParallel(1000)).isTrue();
+        Assertions.assertThat(StorageSettings.DEFAULT.isParallel(Integer.MAX_VALUE)).isFalse();
+        Assertions.assertThatThrownBy(() -> new StorageSettings(1, 0L, 10, -1, 0, 0, 0, 1000L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldReadCacheSize() {
+        StorageSettings settings = StorageSettings.of(config(Map.of(StorageSettings.CACHE_SIZE, "256")));
+        Assertions.assertThat(settings.cacheSize()).isEqualTo(256);
+        Assertions.assertThatThrownBy(() -> new StorageSettings(1, 0L, 10, 0, 0, -1, 0, 1000L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldReadScanBudget() {
+        StorageSettings settings = StorageSettings.of(config(Map.of(StorageSettings.SCAN_BUDGET, "5000")));
+        Assertions.assertThat(settings.scanBudget()).isEqualTo(5000);
+        Assertions.assertThat(settings.isScanBudget()).isTrue();
+        Assertions.assertThat(StorageSettings.DEFAULT.isScanBudget()).isFalse();
+        Assertions.assertThatThrownBy(() -> new StorageSettings(1, 0L, 10, 0, -1, 0, 0, 1000L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldReadDeleteBatch() {
+        StorageSettings settings = StorageSettings.of(config(Map.of(StorageSettings.DELETE_BATCH, "500")));
+        Assertions.assertThat(settings.deleteBatch()).isEqualTo(500);
+        Assertions.assertThat(settings.isDeleteBatch()).isTrue();
+        Assertions.assertThat(StorageSettings.DEFAULT.isDeleteBatch()).isFalse();
+        Assertions.assertThatThrownBy(() -> new StorageSettings(1, 0L, 10, 0, 0, 0, -1, 1000L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldReadExpiryInterval() {
+        StorageSettings settings = StorageSettings.of(config(Map.of(StorageSettings.EXPIRY_INTERVAL, "50")));
+        Assertions.assertThat(settings.expiryInterval()).isEqualTo(50L);
+        Assertions.assertThat(StorageSettings.DEFAULT.expiryInterval()).isEqualTo(StorageSettings.DEFAULT_EXPIRY_INTERVAL);
+        Assertions.assertThatThrownBy(() -> new StorageSettings(1, 0L, 10, 0, 0, 0, 0, 0L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldReturnErrorWhenGroupCommitIsInvalid() {
+        Assertions.assertThatThrownBy(() -> new StorageSettings(1, -1L, 10, 0, 0, 0, 0, 1000L))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> new StorageSettings(1, 5L, 0, 0, 0, 0, 0, 1000L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldReturnErrorWhenStripesIsInvalid() {
+        Assertions.assertThatThrownBy(() -> new StorageSettings(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Config config(Map<String, String> properties) {
+        return new SmallRyeConfigBuilder()
+                .withSources(new PropertiesConfigSource(properties, "test", 100))
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright (c) 2023 Otavio & Rudy
+ *
+ *  This program and the accompanying materials are made available under the
+ *  terms of the Apache License, Version 2.0 which is available at
+ *  https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package expert.os.integration.microstream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class TopSelectionTest {
+
+    @Test
+    public void shouldReturnErrorWhenInvalid() {
+        Assertions.assertThatThrownBy(() -> TopSelection.of(10, null)).isInstanceOf(NullPointerException.class);
+        Assertions.assertThatThrownBy(() -> TopSelection.<Integer>of(0, Comparator.naturalOrder()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldKeepTheFirstValues() {
+        List<Integer> values = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+        Collections.shuffle(values, new Random(42));
+        TopSelection<Integer> top = TopSelection.<Integer>of(5, Comparator.reverseOrder());
+        values.forEach(top);
+
+        Assertions.assertThat(top.toList()).containsExactly(999, 998, 997, 996, 995);
+    }
+
+    @Test
+    public void shouldReturnAllWhenLessThanCapacity() {
+        TopSelection<Integer> top = TopSelection.<Integer>of(5, Comparator.naturalOrder());
+        List.of(3, 1, 2).forEach(top);
+
+        Assertions.assertThat(top.toList()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void shouldKeepArrivalOrderOnTies() {
+        TopSelection<String> top = TopSelection.of(3, Comparator.comparing(String::length));
+        List.of("bb", "a1", "ccc", "a2", "a3", "a4").forEach(top);
+
+        Assertions.assertThat(top.toList()).containsExactly("bb", "a1", "a2");
+    }
+}